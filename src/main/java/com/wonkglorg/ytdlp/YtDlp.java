@@ -1,22 +1,56 @@
 package com.wonkglorg.ytdlp;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.wonkglorg.ytdlp.cache.CacheKeys;
+import com.wonkglorg.ytdlp.cache.DiskMetadataCache;
+import com.wonkglorg.ytdlp.cache.InMemoryMetadataCache;
+import com.wonkglorg.ytdlp.cache.MetadataCache;
+import com.wonkglorg.ytdlp.cache.TieredMetadataCache;
 import com.wonkglorg.ytdlp.callback.DownloadProgressCallback;
+import com.wonkglorg.ytdlp.capture.CapturedOutput;
+import com.wonkglorg.ytdlp.capture.OutputCapture;
+import com.wonkglorg.ytdlp.capture.OutputSink;
+import com.wonkglorg.ytdlp.exception.WorkerException;
 import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.handle.DownloadHandle;
 import com.wonkglorg.ytdlp.mapper.Format;
+import com.wonkglorg.ytdlp.mapper.JsonReaders;
+import com.wonkglorg.ytdlp.mapper.VideoInfoResult;
 import com.wonkglorg.ytdlp.mapper.json.PlaylistInfo;
 import com.wonkglorg.ytdlp.mapper.json.PlaylistPreviewInfo;
 import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+import com.wonkglorg.ytdlp.playlist.PagedPlaylistIterator;
+import com.wonkglorg.ytdlp.scheduler.ProcessScheduler;
 import com.wonkglorg.ytdlp.utils.StreamGobbler;
+import com.wonkglorg.ytdlp.utils.PlaylistUrls;
+import com.wonkglorg.ytdlp.utils.SharedExecutors;
+import com.wonkglorg.ytdlp.utils.SingleFlight;
 import com.wonkglorg.ytdlp.utils.StreamProcessExtractor;
+import com.wonkglorg.ytdlp.utils.VirtualThreads;
+import com.wonkglorg.ytdlp.worker.WorkerPool;
+import com.wonkglorg.ytdlp.worker.WorkerResult;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.wonkglorg.ytdlp.utils.ConsoleColor.*;
 
@@ -34,11 +68,65 @@ public class YtDlp {
         // Private constructor is here to encourage static usage of this class
     }
 
+    /**
+     * Default number of urls passed to a single yt-dlp process by {@link #getVideoInfos(Collection)}
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    /**
+     * Size of the block media is copied in by {@link #executeToChannel(YtDlpRequest, WritableByteChannel)}
+     */
+    private static final int MEDIA_BUFFER_SIZE = 1024 * 1024;
+    /**
+     * Queued after the last value of a json lines request
+     */
+    private static final Object END_OF_VALUES = new Object();
+
+    /**
+     * Pattern of an error reported by yt-dlp for a single url
+     */
+    private static final Pattern errorPattern = Pattern.compile("ERROR: \\[(?<extractor>[^]]+)] (?<id>[^:\\s]+): (?<message>.*)");
+
     /**
      * yt-dlp executable name
      */
     protected static String executablePath = "yt-dlp";
 
+    /**
+     * Executor for parallel tasks supplied by the caller, null to use the {@link SharedExecutors shared executors}
+     */
+    private static volatile ExecutorService taskExecutor;
+
+    /**
+     * True to run the output stream readers and parallel tasks on virtual threads (requires Java 21+, falls back to
+     * platform threads otherwise)
+     */
+    private static volatile boolean useVirtualThreads = false;
+
+    /**
+     * Limits the number of yt-dlp processes running at the same time, every request goes through it
+     */
+    private static volatile ProcessScheduler scheduler = new ProcessScheduler();
+
+    /**
+     * Long lived workers used for short requests instead of a new process each, null to always start a process
+     */
+    private static volatile WorkerPool workerPool;
+
+    /**
+     * Cache for metadata requests, null to always run them
+     */
+    private static volatile MetadataCache metadataCache;
+
+    /**
+     * Metadata requests currently running, keyed on their cache key
+     */
+    private static final SingleFlight<String, String> metadataFlights = new SingleFlight<>();
+
+    /**
+     * Factory for the output stream reader threads when {@link #useVirtualThreads} is enabled
+     */
+    private static volatile ThreadFactory virtualThreadFactory;
+
     /**
      * Append executable name to command
      *
@@ -62,53 +150,557 @@ public class YtDlp {
         String directory = request.getDirectory();
         Map<String, String> options = request.getOption();
 
-        Process process;
         int exitCode;
-        StringBuilder outBuffer = new StringBuilder(); // stdout
-        StringBuilder errBuffer = new StringBuilder(); // stderr
-        long startTime = System.nanoTime();
+        OutputSink outSink = openSink(request.getOutputCapture(), null); // stdout
+        OutputSink errSink = openSink(request.getErrorCapture(), outSink); // stderr
+        boolean completed = false;
 
-        //if multiple empty lines happen correctly split em up
-        String[] split = Arrays.stream(command.split(" "))
-                .filter(s -> !s.isEmpty())
-                .toArray(String[]::new);
+        try (ProcessScheduler.Permit ignored = acquirePermit(request)) {
+            long startTime = System.nanoTime();
 
-        ProcessBuilder processBuilder = new ProcessBuilder(split);
+            ProcessBuilder.Redirect outRedirect = redirect(request, outSink, false);
+            ProcessBuilder.Redirect errRedirect = redirect(request, errSink, true);
+            Process process = startProcess(command, directory, outRedirect, errRedirect);
+            notifyStarted(request, process);
 
-        // Define directory if one is passed
-        if (directory != null) processBuilder.directory(new File(directory));
-        try {
-            process = processBuilder.start();
+            InputStream outStream = process.getInputStream();
+            InputStream errStream = process.getErrorStream();
+
+            // redirected streams are written by the process itself, there is nothing to read
+            Thread stdOutProcessor = outRedirect == ProcessBuilder.Redirect.PIPE ? startThread(reader(request, outSink, outStream, false)) : null;
+            Thread stdErrProcessor = errRedirect == ProcessBuilder.Redirect.PIPE ? startThread(reader(request, errSink, errStream, true)) : null;
+
+            try {
+                if (stdOutProcessor != null) stdOutProcessor.join();
+                if (stdErrProcessor != null) stdErrProcessor.join();
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+
+                // the caller gave up on the request, the process would otherwise keep running
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new YtDlpException(e);
+            }
+
+            CapturedOutput out = outSink.toOutput();
+            CapturedOutput err = errSink.toOutput();
+
+            if (exitCode > 0) {
+                throw new YtDlpException(err.asString());
+            }
+
+            int elapsedTime = (int) ((System.nanoTime() - startTime) / 1000000);
+
+            completed = true;
+            return new YtDlpResponse(String.join(" ", command), options, directory, exitCode, elapsedTime, out, err);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        } finally {
+            if (!completed) {
+                discard(outSink);
+                discard(errSink);
+            }
+        }
+    }
+
+    /**
+     * Execute yt-dlp request without blocking, the output streams are read on the {@link #getStreamExecutor() stream executor}
+     *
+     * @param request request object
+     * @return future completed with the response once the process exited, or exceptionally with a {@link YtDlpException}
+     */
+    public static CompletableFuture<YtDlpResponse> executeAsync(YtDlpRequest request) {
+        return executeAsync(request, getStreamExecutor());
+    }
+
+    /**
+     * Execute yt-dlp request without blocking, completion is driven by {@link Process#onExit()} so no thread waits on the process.
+     * <br>
+     * The executor reads the stdout and stderr streams (2 blocking tasks for the lifetime of the process), it needs to be
+     * able to run those for every request in flight (for example a cached or virtual thread pool) or the process stalls
+     * on a full output pipe. Callbacks of the request are called on the executor.
+     * <br>
+     * Cancelling the returned future destroys the process.
+     *
+     * @param request  request object
+     * @param executor the executor to read the output streams on
+     * @return future completed with the response once the process exited, or exceptionally with a {@link YtDlpException}
+     */
+    public static CompletableFuture<YtDlpResponse> executeAsync(YtDlpRequest request, Executor executor) {
+        String command = buildCommand(request.buildOptions());
+        String directory = request.getDirectory();
+        Map<String, String> options = request.getOption();
+
+        CompletableFuture<ProcessScheduler.Permit> permitFuture = scheduler.acquireAsync(request.getSchedulerKey());
+        AtomicReference<Process> processReference = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // whoever claims the permit first is responsible for closing it, the process or the cancel handler
+        AtomicBoolean permitClaimed = new AtomicBoolean();
+
+        CompletableFuture<YtDlpResponse> response = permitFuture.thenCompose(permit -> {
+            if (!permitClaimed.compareAndSet(false, true)) {
+                return CompletableFuture.failedFuture(new CancellationException());
+            }
+            long startTime = System.nanoTime();
+
+            OutputSink outSink; // stdout
+            OutputSink errSink; // stderr
+            Process process;
+            try {
+                outSink = openSink(request.getOutputCapture(), null);
+                errSink = openSink(request.getErrorCapture(), outSink);
+            } catch (YtDlpException e) {
+                permit.close();
+                return CompletableFuture.failedFuture(e);
+            }
+            ProcessBuilder.Redirect outRedirect = redirect(request, outSink, false);
+            ProcessBuilder.Redirect errRedirect = redirect(request, errSink, true);
+            try {
+                process = startProcess(command, directory, outRedirect, errRedirect);
+            } catch (YtDlpException e) {
+                permit.close();
+                discard(outSink);
+                discard(errSink);
+                return CompletableFuture.failedFuture(e);
+            }
+            processReference.set(process);
+            if (cancelled.get()) process.destroy();
+            notifyStarted(request, process);
+
+            CompletableFuture<Void> stdOut = outRedirect == ProcessBuilder.Redirect.PIPE
+                    ? CompletableFuture.runAsync(reader(request, outSink, process.getInputStream(), false), executor)
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> stdErr = errRedirect == ProcessBuilder.Redirect.PIPE
+                    ? CompletableFuture.runAsync(reader(request, errSink, process.getErrorStream(), true), executor)
+                    : CompletableFuture.completedFuture(null);
+
+            return CompletableFuture.allOf(stdOut, stdErr).thenCombine(process.onExit(), (ignored, exited) -> {
+                int exitCode = exited.exitValue();
+                CapturedOutput out;
+                CapturedOutput err;
+                try {
+                    out = outSink.toOutput();
+                    err = errSink.toOutput();
+                } catch (IOException e) {
+                    throw new YtDlpException(e);
+                }
+
+                if (exitCode > 0) {
+                    throw new YtDlpException(err.asString());
+                }
+
+                int elapsedTime = (int) ((System.nanoTime() - startTime) / 1000000);
+
+                return new YtDlpResponse(command, options, directory, exitCode, elapsedTime, out, err);
+            }).whenComplete((result, throwable) -> {
+                permit.close();
+                if (throwable != null) {
+                    discard(outSink);
+                    discard(errSink);
+                }
+            });
+        });
+
+        response.whenComplete((result, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                cancelled.set(true);
+                // leaves the scheduler queue if still waiting, otherwise stops the running process
+                if (!permitFuture.cancel(false)) {
+                    // granted in the meantime, the compose function is skipped once the response is done
+                    permitFuture.thenAccept(permit -> {
+                        if (permitClaimed.compareAndSet(false, true)) permit.close();
+                    });
+                }
+                Process process = processReference.get();
+                if (process != null) process.destroy();
+            }
+        });
+
+        return response;
+    }
+
+    /**
+     * Execute yt-dlp request in the background on the {@link #getTaskExecutor() task executor}, the returned handle can
+     * cancel it (killing the process and its children and deleting partial files) and reports the latest progress
+     *
+     * @param request      request object
+     * @param timeout      the maximum time the request may take, null for none
+     * @param stallTimeout the maximum time the process may go without progress or output, null for none
+     * @return the handle completed with the response
+     */
+    public static DownloadHandle<YtDlpResponse> executeCancellable(YtDlpRequest request, Duration timeout, Duration stallTimeout) {
+        return DownloadHandle.start(request, timeout, stallTimeout, getTaskExecutor(), YtDlp::execute);
+    }
+
+    /**
+     * Execute a yt-dlp request downloading the media to stdout ({@code --output -}) and write it to the channel as it
+     * is received, nothing is written to disk. The requested format has to be a single file, merging formats or post
+     * processing (such as audio extraction) needs a file on disk.
+     * <br>
+     * yt-dlp reports progress on stderr in this mode, the callbacks of the request are called from it and the
+     * {@link YtDlpRequest#setErrorCapture(OutputCapture) error capture} bounds what is kept of it.
+     *
+     * @param request request object
+     * @param channel the channel receiving the media, not closed
+     * @return the amount of bytes written
+     * @throws YtDlpException if the process failed or the channel could not be written
+     */
+    public static long executeToChannel(YtDlpRequest request, WritableByteChannel channel) throws YtDlpException {
+        Objects.requireNonNull(channel);
+        return executeToSink(request, chunk -> {
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #executeToChannel(YtDlpRequest, WritableByteChannel)} writing to a stream
+     *
+     * @param request request object
+     * @param stream  the stream receiving the media, not closed
+     * @return the amount of bytes written
+     * @throws YtDlpException if the process failed or the stream could not be written
+     */
+    public static long executeToStream(YtDlpRequest request, OutputStream stream) throws YtDlpException {
+        Objects.requireNonNull(stream);
+        return executeToSink(request, chunk -> stream.write(chunk.array(), chunk.position(), chunk.remaining()));
+    }
+
+    /**
+     * Receives the media of {@link #executeToSink(YtDlpRequest, MediaSink)} block by block
+     */
+    @FunctionalInterface
+    private interface MediaSink {
+        /**
+         * @param chunk the next block, backed by a buffer that is reused once this call returns
+         */
+        void write(ByteBuffer chunk) throws IOException;
+    }
+
+    private static long executeToSink(YtDlpRequest request, MediaSink sink) throws YtDlpException {
+        request.addOption("--output", "-");
+        String command = buildCommand(request.buildOptions());
+        String directory = request.getDirectory();
+
+        OutputSink errSink = openSink(request.getErrorCapture(), null); // stderr
+        try (ProcessScheduler.Permit ignored = acquirePermit(request)) {
+            Process process = startProcess(command, directory);
+            notifyStarted(request, process);
+            Thread stdErrProcessor = startThread(new StreamProcessExtractor(errSink, process.getErrorStream(), request));
+
+            long written = 0;
+            IOException failure = null;
+            // the process only exposes stdout as a stream, one reused block keeps the copy from the pipe the only one
+            byte[] block = new byte[MEDIA_BUFFER_SIZE];
+            ByteBuffer chunk = ByteBuffer.wrap(block);
+            try (InputStream media = process.getInputStream()) {
+                int read;
+                while ((read = media.read(block)) != -1) {
+                    chunk.clear().limit(read);
+                    sink.write(chunk);
+                    written += read;
+                }
+            } catch (IOException e) {
+                // the receiver failed, nobody is left to read the media
+                failure = e;
+                process.destroy();
+            }
+
+            int exitCode;
+            try {
+                stdErrProcessor.join();
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new YtDlpException(e);
+            }
+
+            if (failure != null) {
+                throw new YtDlpException(failure);
+            }
+            if (exitCode > 0) {
+                throw new YtDlpException(errSink.toOutput().asString());
+            }
+            return written;
         } catch (IOException e) {
             throw new YtDlpException(e);
+        } finally {
+            discard(errSink);
+        }
+    }
+
+    /**
+     * Execute a yt-dlp request whose output is one json object per line (for example --dump-json on a playlist), each
+     * object is mapped and passed to the consumer as soon as it is received instead of buffering the whole output
+     * <br>
+     * The consumer runs on the calling thread while the output is parsed on another one, objects are only buffered while
+     * the consumer falls behind. The scheduler permit is released once the process exited, independent of the consumer,
+     * so the consumer may make requests of its own.
+     *
+     * @param request  request object
+     * @param type     the type to map each json object to
+     * @param consumer called for every mapped object in the order they are output
+     * @throws YtDlpException if the process fails or the output could not be parsed
+     */
+    public static <T> void executeJsonLines(YtDlpRequest request, Class<T> type, Consumer<T> consumer) throws YtDlpException {
+        JsonLinesResult result = runJsonLines(request, type, consumer);
+        if (result.exitCode() > 0) {
+            throw new YtDlpException(result.err());
         }
+    }
 
-        InputStream outStream = process.getInputStream();
-        InputStream errStream = process.getErrorStream();
+    /**
+     * Exit code and stderr of a json lines request
+     */
+    private record JsonLinesResult(int exitCode, String err) {
+    }
 
-        StreamProcessExtractor stdOutProcessor = new StreamProcessExtractor(outBuffer, outStream, request);
-        StreamGobbler stdErrProcessor = new StreamGobbler(errBuffer, errStream);
+    private static <T> JsonLinesResult runJsonLines(YtDlpRequest request, Class<T> type, Consumer<T> consumer) throws YtDlpException {
+        String command = buildCommand(request.buildOptions());
+        StringBuilder errBuffer = new StringBuilder(); // stderr
 
+        ProcessScheduler.Permit permit = acquirePermit(request);
+        Process process;
         try {
-            stdOutProcessor.join();
-            stdErrProcessor.join();
-            exitCode = process.waitFor();
+            process = startProcess(command, request.getDirectory());
+        } catch (YtDlpException e) {
+            permit.close();
+            throw e;
+        }
+        Thread stdErrProcessor = startThread(new StreamGobbler(errBuffer, process.getErrorStream()));
+
+        // the output is parsed on its own thread and the permit released as soon as the process exited, the consumer
+        // never runs while holding it, so it can make requests of its own even if the scheduler allows only one process
+        BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        CompletableFuture<Integer> exit = new CompletableFuture<>();
+        startThread(() -> {
+            int exitCode = -1;
+            RuntimeException failure = new YtDlpException("Output of the process could not be read");
+            try (MappingIterator<T> iterator = JsonReaders.readerFor(type).readValues(process.getInputStream())) {
+                while (iterator.hasNextValue()) {
+                    values.add(iterator.nextValue());
+                }
+                stdErrProcessor.join();
+                exitCode = process.waitFor();
+                failure = null;
+            } catch (IOException e) {
+                failure = new YtDlpException("Unable to parse video information: " + e.getMessage());
+            } catch (InterruptedException e) {
+                failure = new YtDlpException(e);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                // does nothing if the process already exited, otherwise the output was abandoned
+                process.destroy();
+                permit.close();
+                values.add(END_OF_VALUES);
+                // completed last, the permit is released once the caller sees the exit
+                if (failure == null) {
+                    exit.complete(exitCode);
+                } else {
+                    exit.completeExceptionally(failure);
+                }
+            }
+        });
+
+        boolean consumed = false;
+        try {
+            for (Object value = values.take(); value != END_OF_VALUES; value = values.take()) {
+                @SuppressWarnings("unchecked") T next = (T) value;
+                consumer.accept(next);
+            }
+            consumed = true;
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
+        } finally {
+            if (!consumed) {
+                // the consumer failed or the caller gave up, the permit is released once the reader saw the process exit
+                process.destroy();
+                exit.exceptionally(e -> null).join();
+            }
+        }
 
-            // process exited for some reason
+        try {
+            return new JsonLinesResult(exit.join(), errBuffer.toString());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Execute a short yt-dlp request on the {@link #setWorkerPool(WorkerPool) worker pool}, saving the interpreter
+     * startup of a new process. Runs it with {@link #execute(YtDlpRequest)} if no pool is set or the pool failed.
+     * <br>
+     * The output is only available once the job finished, so callbacks of the request are not invoked.
+     *
+     * @param request request object
+     * @return response object
+     */
+    public static YtDlpResponse executeOnWorker(YtDlpRequest request) throws YtDlpException {
+        WorkerPool pool = workerPool;
+        if (pool == null) return execute(request);
+
+        // building the options consumes them, the fallback needs its own copy
+        YtDlpRequest fallback = request.clone();
+        String options = request.buildOptions();
+        String directory = request.getDirectory();
+
+        try (ProcessScheduler.Permit ignored = acquirePermit(request)) {
+            long startTime = System.nanoTime();
+            WorkerResult result = pool.execute(Arrays.asList(splitCommand(options)), directory);
+            if (result.exitCode() > 0) {
+                throw new YtDlpException(result.err());
+            }
+            int elapsedTime = (int) ((System.nanoTime() - startTime) / 1000000);
+            return new YtDlpResponse(buildCommand(options), request.getOption(), directory, result.exitCode(), elapsedTime, result.out(), result.err());
+        } catch (WorkerException e) {
+            log.warning("Worker pool failed, running request as a separate process: " + e.getMessage());
+        }
+        return execute(fallback);
+    }
+
+    /**
+     * Waits for the {@link #scheduler} to allow the request to start a process
+     */
+    private static ProcessScheduler.Permit acquirePermit(YtDlpRequest request) throws YtDlpException {
+        try {
+            return scheduler.acquire(request.getSchedulerKey());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new YtDlpException(e);
         }
+    }
 
-        String out = outBuffer.toString();
-        String err = errBuffer.toString();
+    /**
+     * Starts a stream reader on its own thread
+     */
+    private static Thread startThread(Runnable streamReader) {
+        Thread thread = useVirtualThreads ? virtualThreadFactory().newThread(streamReader) : new Thread(streamReader);
+        thread.start();
+        return thread;
+    }
+
+    private static Thread newPlatformThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "yt-dlp-stream");
+        thread.setDaemon(true);
+        return thread;
+    }
 
-        if (exitCode > 0) {
-            throw new YtDlpException(err);
+    private static ThreadFactory virtualThreadFactory() {
+        if (virtualThreadFactory == null) {
+            virtualThreadFactory = VirtualThreads.factoryOrElse(YtDlp::newPlatformThread);
         }
+        return virtualThreadFactory;
+    }
+
+    /**
+     * Starts the yt-dlp process
+     *
+     * @param command   the full command
+     * @param directory the working directory (may be null)
+     * @return the started process
+     */
+    private static Process startProcess(String command, String directory) throws YtDlpException {
+        return startProcess(command, directory, ProcessBuilder.Redirect.PIPE, ProcessBuilder.Redirect.PIPE);
+    }
+
+    /**
+     * Starts the yt-dlp process
+     *
+     * @param command   the full command
+     * @param directory the working directory (may be null)
+     * @param out       where the process writes stdout
+     * @param err       where the process writes stderr
+     * @return the started process
+     */
+    private static Process startProcess(String command, String directory, ProcessBuilder.Redirect out, ProcessBuilder.Redirect err) throws YtDlpException {
+        ProcessBuilder processBuilder = new ProcessBuilder(splitCommand(command));
+        processBuilder.redirectOutput(out);
+        processBuilder.redirectError(err);
 
-        int elapsedTime = (int) ((System.nanoTime() - startTime) / 1000000);
+        // Define directory if one is passed
+        if (directory != null) processBuilder.directory(new File(directory));
+        // Output is decoded as UTF-8 regardless of the platform locale
+        processBuilder.environment().put("PYTHONIOENCODING", "utf-8");
+        try {
+            return processBuilder.start();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
 
-        return new YtDlpResponse(String.join(" ", command), options, directory, exitCode, elapsedTime, out, err);
+    /**
+     * Passes a started process to the {@link YtDlpRequest#setProcessListener(Consumer) listener} of the request
+     */
+    private static void notifyStarted(YtDlpRequest request, Process process) {
+        Consumer<Process> listener = request.getProcessListener();
+        if (listener != null) listener.accept(process);
+    }
+
+    /**
+     * Opens the sink capturing one output stream of a process
+     *
+     * @param capture the capture policy
+     * @param opened  a sink opened before this one, discarded if this one can not be opened (may be null)
+     */
+    private static OutputSink openSink(OutputCapture capture, OutputSink opened) throws YtDlpException {
+        try {
+            return capture.openSink();
+        } catch (IOException e) {
+            if (opened != null) discard(opened);
+            throw new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Ends a capture whose output is not used, deleting its temp file
+     */
+    private static void discard(OutputSink sink) {
+        try {
+            sink.toOutput().close();
+        } catch (IOException e) {
+            log.log(Level.FINE, "Unable to discard output", e);
+        }
+    }
+
+    /**
+     * @return true if a callback of the request needs to see the output, it then can not be redirected past the jvm
+     */
+    private static boolean hasOutputListener(YtDlpRequest request) {
+        return request.getDownloadProgressCallback() != null || request.getDownloadStartCallback() != null
+                || request.getDownloadEndCallback() != null || request.getDownloadLineCallback() != null;
+    }
+
+    /**
+     * @param stderr true for stderr, false for stdout
+     * @return how the process writes the stream, always read by the jvm if it carries the output the callbacks listen to
+     */
+    private static ProcessBuilder.Redirect redirect(YtDlpRequest request, OutputSink sink, boolean stderr) {
+        boolean listened = hasOutputListener(request) && request.isProgressOnStderr() == stderr;
+        return listened ? ProcessBuilder.Redirect.PIPE : sink.redirect();
+    }
+
+    /**
+     * @param stderr true for stderr, false for stdout
+     * @return reads the stream into the sink, notifying the callbacks of the request if the stream carries the progress
+     */
+    private static Runnable reader(YtDlpRequest request, OutputSink sink, InputStream stream, boolean stderr) {
+        if (request.isProgressOnStderr() == stderr) return new StreamProcessExtractor(sink, stream, request);
+        return new StreamGobbler(sink, stream);
+    }
+
+    /**
+     * Splits a command into its arguments
+     */
+    private static String[] splitCommand(String command) {
+        //if multiple empty lines happen correctly split em up
+        return Arrays.stream(command.split(" "))
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
     }
 
     /**
@@ -118,7 +710,7 @@ public class YtDlp {
      */
     public static String getVersion() throws YtDlpException {
         YtDlpRequest request = new YtDlpRequest().addOption("--version");
-        return YtDlp.execute(request).getOut();
+        return YtDlp.executeOnWorker(request).getOut();
     }
 
     /**
@@ -176,41 +768,121 @@ public class YtDlp {
 
         PlaylistInfo playlistPreviewInfo = optionalPlaylistPreviewInfo.get();
 
-        YtDlpRequest request = new YtDlpRequest(url);
-        request.addOption("--dump-json");
-        YtDlpResponse response = YtDlp.execute(request);
-
-        ObjectMapper objectMapper = new ObjectMapper();
         List<VideoInfo> videoInfos = new ArrayList<>();
-        String responseOutput = response.getOut();
+        forEachPlaylistEntry(url, videoInfos::add);
 
-        //splits them by their outer brackets, because the format is not valid json but each video entry is a seperate json all in 1 response.
-        String[] jsonObjects = responseOutput.split("}\\s*\\{");
+        playlistPreviewInfo.setEntries(videoInfos);
 
-        if (jsonObjects.length < 1) return Optional.empty();
+        return Optional.of(playlistPreviewInfo);
+    }
 
-        for (int i = 0; i < jsonObjects.length; i++) {
-            if (i == 0) {
-                jsonObjects[i] = jsonObjects[i] + "}";
-            } else if (i == jsonObjects.length - 1) {
-                jsonObjects[i] = "{" + jsonObjects[i] + "}";
-            } else {
-                jsonObjects[i] = "{" + jsonObjects[i];
-            }
-        }
+    /**
+     * Returns the full Information regarding all videos in a playlist as seen in {@link #getPlaylistInfo(String)}, but
+     * splits the entries of the flat playlist listing into shards each extracted by its own yt-dlp process in parallel
+     * instead of extracting every entry one after another in a single process
+     * <br>
+     * The shards run on the {@link #getTaskExecutor() task executor}, the number of processes is further limited by the
+     * {@link #getScheduler() scheduler}
+     *
+     * @param url    The Playlist url
+     * @param shards maximum number of processes extracting entries at the same time, 1 to use a single process
+     * @return {@link PlaylistInfo} with its entries in playlist order
+     * @throws YtDlpException if the playlist or any of its entries could not be retrieved
+     */
+    public static Optional<PlaylistInfo> getPlaylistInfo(String url, int shards) throws YtDlpException {
+        if (shards <= 0) throw new IllegalArgumentException("shards must be greater than 0");
+        if (shards == 1) return getPlaylistInfo(url);
 
+        String listing = playlistListing(url);
+        PlaylistInfo playlistInfo;
+        PlaylistPreviewInfo previewInfo;
         try {
-            for (String jsonObject : jsonObjects) {
-                VideoInfo videoInfo = objectMapper.readValue(jsonObject + "}", VideoInfo.class);
-                videoInfos.add(videoInfo);
-            }
+            playlistInfo = JsonReaders.read(listing, PlaylistInfo.class);
+            previewInfo = JsonReaders.read(listing, PlaylistPreviewInfo.class);
         } catch (IOException e) {
             throw new YtDlpException("Unable to parse video information: " + e.getMessage());
         }
 
-        playlistPreviewInfo.setEntries(videoInfos);
+        List<String> urls = new ArrayList<>();
+        if (previewInfo.getEntries() != null) {
+            for (VideoPreviewInfo entry : previewInfo.getEntries()) {
+                urls.add(entry.getUrl() != null ? entry.getUrl() : entry.getId());
+            }
+        }
 
-        return Optional.of(playlistPreviewInfo);
+        int shardSize = Math.max(1, (urls.size() + shards - 1) / shards);
+        List<Callable<Map<String, VideoInfoResult>>> tasks = new ArrayList<>();
+        for (int start = 0; start < urls.size(); start += shardSize) {
+            List<String> shard = urls.subList(start, Math.min(start + shardSize, urls.size()));
+            tasks.add(() -> {
+                Map<String, VideoInfoResult> results = new HashMap<>();
+                getVideoInfoBatch(shard, results);
+                return results;
+            });
+        }
+        Map<String, VideoInfoResult> results = executeTasks(tasks);
+
+        List<VideoInfo> videoInfos = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (String entryUrl : urls) {
+            VideoInfoResult result = results.get(entryUrl);
+            if (result != null && result.isSuccess()) {
+                videoInfos.add(result.videoInfo());
+            } else {
+                errors.add(entryUrl + ": " + (result == null ? "No information returned for url" : result.error()));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new YtDlpException("Unable to extract " + errors.size() + " of " + urls.size() + " playlist entries: " + String.join(", ", errors));
+        }
+
+        playlistInfo.setEntries(videoInfos);
+        return Optional.of(playlistInfo);
+    }
+
+    /**
+     * Retrieves the full information of every video in a playlist as seen in {@link #getVideoInfo(String)}, each entry
+     * is passed to the consumer as soon as yt-dlp outputs it so entries are only held in memory while the consumer falls
+     * behind, see {@link #executeJsonLines(YtDlpRequest, Class, Consumer)}
+     *
+     * @param url      The Playlist url
+     * @param consumer called for every video in playlist order
+     * @throws YtDlpException if the playlist could not be retrieved
+     */
+    public static void forEachPlaylistEntry(String url, Consumer<VideoInfo> consumer) throws YtDlpException {
+        YtDlpRequest request = new YtDlpRequest(url);
+        request.addOption("--dump-json");
+        executeJsonLines(request, VideoInfo.class, consumer);
+    }
+
+    /**
+     * Lazily streams the full information of every video in a playlist, fetching pageSize entries per yt-dlp process
+     * and prefetching the next page while the current one is consumed, see {@link PagedPlaylistIterator}
+     * <br>
+     * Close the stream when not consuming it to the end
+     *
+     * @param url      The Playlist url
+     * @param pageSize number of entries fetched per yt-dlp process
+     * @return the entries in playlist order
+     */
+    public static Stream<VideoInfo> streamPlaylistInfo(String url, int pageSize) {
+        return streamPlaylist(new PagedPlaylistIterator<>(url, VideoInfo.class, pageSize, List.of("--dump-json"), getTaskExecutor()));
+    }
+
+    /**
+     * Lazily streams the flat entries of a playlist, see {@link #streamPlaylistInfo(String, int)}
+     *
+     * @param url      The Playlist url
+     * @param pageSize number of entries fetched per yt-dlp process
+     * @return the entries in playlist order
+     */
+    public static Stream<VideoPreviewInfo> streamPlaylistPreviewInfo(String url, int pageSize) {
+        return streamPlaylist(new PagedPlaylistIterator<>(url, VideoPreviewInfo.class, pageSize, List.of("--flat-playlist", "--dump-json"), getTaskExecutor()));
+    }
+
+    private static <T> Stream<T> streamPlaylist(PagedPlaylistIterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
     }
 
     /**
@@ -220,17 +892,12 @@ public class YtDlp {
      * @return {@link PlaylistPreviewInfo}
      */
     public static Optional<PlaylistPreviewInfo> getPlaylistPreviewInfo(String url) throws YtDlpException {
-        YtDlpRequest request = new YtDlpRequest(url);
-        request.addOption("--dump-single-json");
-        request.addOption("--flat-playlist");
-        request.addOption("--skip-download");
-        YtDlpResponse response = YtDlp.execute(request);
+        String json = cachedJson(CacheKeys.playlistPreview(url), () -> playlistListing(url));
 
-        ObjectMapper objectMapper = new ObjectMapper();
         PlaylistPreviewInfo videoInfo;
 
         try {
-            videoInfo = objectMapper.readValue(response.getOut(), PlaylistPreviewInfo.class);
+            videoInfo = JsonReaders.read(json, PlaylistPreviewInfo.class);
         } catch (IOException e) {
             throw new YtDlpException("Unable to parse video information: " + e.getMessage());
         }
@@ -239,20 +906,24 @@ public class YtDlp {
     }
 
     /**
-     * Setup method to get the base playlist information
+     * @return the json of the flat playlist listing
      */
-    private static Optional<PlaylistInfo> getPlaylistInfoSetup(String url) throws YtDlpException {
+    private static String playlistListing(String url) throws YtDlpException {
         YtDlpRequest request = new YtDlpRequest(url);
         request.addOption("--dump-single-json");
         request.addOption("--flat-playlist");
         request.addOption("--skip-download");
-        YtDlpResponse response = YtDlp.execute(request);
+        return YtDlp.executeOnWorker(request).getOut();
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * Setup method to get the base playlist information
+     */
+    private static Optional<PlaylistInfo> getPlaylistInfoSetup(String url) throws YtDlpException {
         PlaylistInfo videoInfo;
 
         try {
-            videoInfo = objectMapper.readValue(response.getOut(), PlaylistInfo.class);
+            videoInfo = JsonReaders.read(playlistListing(url), PlaylistInfo.class);
         } catch (IOException e) {
             throw new YtDlpException("Unable to parse video information: " + e.getMessage());
         }
@@ -261,31 +932,48 @@ public class YtDlp {
     }
 
     /**
-     * Checks weather the URL is a playlist or not (do not call too often, takes a few seconds on average to calculate)
+     * Looks up the json output of a metadata request in the {@link #metadataCache}, concurrent misses for the same key
+     * share a single extraction
+     *
+     * @param key        the cache key
+     * @param extraction runs the request and returns its json output
+     * @return the json output
+     */
+    private static String cachedJson(String key, Supplier<String> extraction) throws YtDlpException {
+        MetadataCache cache = metadataCache;
+        if (cache == null) return extraction.get();
+
+        Optional<String> cached = cache.get(key);
+        if (cached.isPresent()) return cached.get();
+
+        // checked again in flight, another extraction may have finished since the first lookup
+        return metadataFlights.execute(key, () -> cache.get(key).orElseGet(() -> {
+            String json = extraction.get();
+            if (!json.isBlank()) cache.put(key, json);
+            return json;
+        }));
+    }
+
+    /**
+     * Checks weather the URL is a playlist or not. Urls of well known sites are classified locally (see
+     * {@link PlaylistUrls}), others with a yt-dlp probe that extracts no playlist entries
      *
      * @param url Video Url
      * @return true if the video url belongs to a playlist, false if the video is not a playlist or an invalid link
      * @throws YtDlpException
      */
     public static boolean isPlaylist(String url) throws YtDlpException {
-        //works faster on playlists than individual videos duo to the data retrieved is there a flag to set that doesn't output as much info?
+        Optional<Boolean> classified = PlaylistUrls.classify(url);
+        if (classified.isPresent()) return classified.get();
+
+        // prints the type once per playlist and nothing for a single video, -I 0 skips extracting any entry
         YtDlpRequest request = new YtDlpRequest(url);
-        request.addOption("--dump-single-json");
         request.addOption("--flat-playlist");
-        request.addOption("--skip-download");
-        YtDlpResponse response = YtDlp.execute(request);
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode jsonNode;
+        request.addOption("--playlist-items", "0");
+        request.addOption("--print", "playlist:%(_type)s");
+        YtDlpResponse response = YtDlp.executeOnWorker(request);
 
-        try {
-            jsonNode = objectMapper.readTree(response.getOut());
-        } catch (IOException e) {
-            throw new YtDlpException("Unable to parse video information: " + e.getMessage());
-        }
-
-        // Check if the JSON response contains playlist-specific fields
-        return jsonNode.has("entries");
+        return response.getOut().trim().startsWith("playlist");
     }
 
     /**
@@ -298,18 +986,19 @@ public class YtDlp {
      */
     public static Optional<VideoInfo> getVideoInfo(String url) throws YtDlpException {
 
-        // Build request
-        YtDlpRequest request = new YtDlpRequest(url);
-        request.addOption("--dump-json");
-        request.addOption("--no-playlist");
-        YtDlpResponse response = YtDlp.execute(request);
+        String json = cachedJson(CacheKeys.video(url), () -> {
+            // Build request
+            YtDlpRequest request = new YtDlpRequest(url);
+            request.addOption("--dump-json");
+            request.addOption("--no-playlist");
+            return YtDlp.executeOnWorker(request).getOut();
+        });
 
         // Parse result
-        ObjectMapper objectMapper = new ObjectMapper();
         VideoInfo videoInfo;
 
         try {
-            videoInfo = objectMapper.readValue(response.getOut(), VideoInfo.class);
+            videoInfo = JsonReaders.read(json, VideoInfo.class);
         } catch (IOException e) {
             throw new YtDlpException("Unable to parse video information: " + e.getMessage());
         }
@@ -318,6 +1007,96 @@ public class YtDlp {
     }
 
 
+    /**
+     * Retrieves the information of many videos using one yt-dlp process per {@link #DEFAULT_BATCH_SIZE} urls instead of
+     * one process per url, see {@link #getVideoInfos(Collection, int)}
+     *
+     * @param urls Video urls
+     * @return the result of every distinct url in input order
+     */
+    public static Map<String, VideoInfoResult> getVideoInfos(Collection<String> urls) throws YtDlpException {
+        return getVideoInfos(urls, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Retrieves the information of many videos, passing up to batchSize urls to a single yt-dlp process to only pay its
+     * startup once per batch. Urls that could not be extracted do not fail the batch, their result contains the error
+     * yt-dlp reported for them instead.
+     *
+     * @param urls      Video urls
+     * @param batchSize maximum number of urls per yt-dlp process
+     * @return the result of every distinct url in input order
+     */
+    public static Map<String, VideoInfoResult> getVideoInfos(Collection<String> urls, int batchSize) throws YtDlpException {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be greater than 0");
+        List<String> distinctUrls = new ArrayList<>(new LinkedHashSet<>(urls));
+        Map<String, VideoInfoResult> results = new LinkedHashMap<>();
+
+        for (int start = 0; start < distinctUrls.size(); start += batchSize) {
+            List<String> batch = distinctUrls.subList(start, Math.min(start + batchSize, distinctUrls.size()));
+            getVideoInfoBatch(batch, results);
+        }
+
+        return results;
+    }
+
+    private static void getVideoInfoBatch(List<String> batch, Map<String, VideoInfoResult> results) throws YtDlpException {
+        // urls can not contain spaces, so they are passed as separate arguments
+        YtDlpRequest request = new YtDlpRequest(String.join(" ", batch));
+        request.setSchedulerKey(ProcessScheduler.keyOf(batch.get(0)));
+        request.addOption("--dump-json");
+        request.addOption("--no-playlist");
+        request.addOption("--ignore-errors");
+
+        List<String> pending = new ArrayList<>(batch);
+        JsonLinesResult result = runJsonLines(request, VideoInfo.class, videoInfo -> {
+            String url = matchUrl(videoInfo, pending);
+            if (url != null) {
+                pending.remove(url);
+                results.put(url, new VideoInfoResult(url, videoInfo, null));
+            }
+        });
+
+        if (pending.isEmpty()) return;
+
+        List<String> errors = result.err().lines().filter(line -> line.startsWith("ERROR:")).collect(Collectors.toCollection(ArrayList::new));
+        for (String url : pending) {
+            String error = null;
+            for (String line : errors) {
+                Matcher matcher = errorPattern.matcher(line);
+                if (matcher.matches() && url.contains(matcher.group("id"))) {
+                    error = matcher.group("message");
+                    errors.remove(line);
+                    break;
+                }
+            }
+            if (error == null) {
+                // a single failure can be attributed even if its id does not appear in the url
+                error = pending.size() == 1 && errors.size() == 1 ? errors.get(0) : "No information returned for url";
+            }
+            results.put(url, new VideoInfoResult(url, null, error));
+        }
+    }
+
+    /**
+     * Finds the requested url an extracted video belongs to
+     *
+     * @return the url or null if none matches, the video is then dropped so its information is never attributed to a
+     * url that failed (with --ignore-errors the next video follows directly after a failed one)
+     */
+    private static String matchUrl(VideoInfo videoInfo, List<String> pending) {
+        if (pending.contains(videoInfo.getOriginalUrl())) return videoInfo.getOriginalUrl();
+        if (pending.contains(videoInfo.getWebpageUrl())) return videoInfo.getWebpageUrl();
+        String id = videoInfo.getId();
+        if (id != null) {
+            for (String url : pending) {
+                if (url.contains(id)) return url;
+            }
+        }
+        log.fine("Extracted video " + id + " does not match any requested url");
+        return null;
+    }
+
     /**
      * Get command executable or path to the executable
      *
@@ -336,8 +1115,116 @@ public class YtDlp {
         executablePath = path;
     }
 
+    /**
+     * @return the executor reading the output streams of {@link #executeAsync(YtDlpRequest)} calls
+     */
+    public static Executor getStreamExecutor() {
+        if (useVirtualThreads && VirtualThreads.isSupported()) {
+            return SharedExecutors.virtualExecutor();
+        }
+        return SharedExecutors.streamExecutor();
+    }
+
+    /**
+     * @return the executor parallel tasks run on, the one set with {@link #setTaskExecutor(ExecutorService)} or the shared
+     * task executor (virtual threads if {@link #isUseVirtualThreads()})
+     */
+    public static ExecutorService getTaskExecutor() {
+        ExecutorService executor = taskExecutor;
+        if (executor != null) return executor;
+        return useVirtualThreads ? SharedExecutors.virtualExecutor() : SharedExecutors.taskExecutor();
+    }
+
+    /**
+     * Sets the executor parallel tasks run on, its lifecycle is managed by the caller. Tasks may wait for other tasks
+     * submitted to it (for example a download handle running a sharded extraction), a bounded pool can deadlock once
+     * all of its threads wait, prefer a cached or virtual thread executor
+     *
+     * @param executor the executor, null to use the shared executors again
+     */
+    public static void setTaskExecutor(ExecutorService executor) {
+        taskExecutor = executor;
+    }
+
+    /**
+     * Shuts down the shared executors created by the library, call once on application shutdown. Executors set with
+     * {@link #setTaskExecutor(ExecutorService)} are not affected
+     */
+    public static void shutdown() {
+        SharedExecutors.shutdown();
+    }
+
+    /**
+     * @return the worker pool used for short requests, null if every request starts a new process
+     */
+    public static WorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * Sets the worker pool used for short requests such as {@link #getVersion()}, {@link #getVideoInfo(String)} and
+     * {@link #isPlaylist(String)}, its lifecycle is managed by the caller
+     *
+     * @param workerPool the worker pool, for example {@link WorkerPool#withBundledShim(String, int, int)}, null to
+     *                   start a new process for every request
+     */
+    public static void setWorkerPool(WorkerPool workerPool) {
+        YtDlp.workerPool = workerPool;
+    }
+
+    /**
+     * @return the metadata cache, null if metadata requests are not cached
+     */
+    public static MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Sets the cache in front of {@link #getVideoInfo(String)} and {@link #getPlaylistPreviewInfo(String)}
+     *
+     * @param metadataCache the cache, for example {@link InMemoryMetadataCache} or a {@link TieredMetadataCache} of it
+     *                      and a {@link DiskMetadataCache}, null to disable caching
+     */
+    public static void setMetadataCache(MetadataCache metadataCache) {
+        YtDlp.metadataCache = metadataCache;
+    }
+
+    /**
+     * @return the scheduler limiting the number of yt-dlp processes running at the same time
+     */
+    public static ProcessScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets the scheduler limiting the number of yt-dlp processes running at the same time, requests already waiting
+     * on the previous scheduler stay queued there
+     *
+     * @param scheduler the scheduler
+     */
+    public static void setScheduler(ProcessScheduler scheduler) {
+        YtDlp.scheduler = Objects.requireNonNull(scheduler);
+    }
+
+    /**
+     * @return true if output stream readers and parallel tasks run on virtual threads
+     */
+    public static boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Run output stream readers and parallel tasks on virtual threads instead of platform threads, requires Java 21+
+     * (falls back to platform threads with a warning otherwise)
+     *
+     * @param useVirtualThreads true to use virtual threads
+     */
+    public static void setUseVirtualThreads(boolean useVirtualThreads) {
+        YtDlp.useVirtualThreads = useVirtualThreads;
+    }
+
     private static <T> Map<String, T> executeTasks(List<Callable<Map<String, T>>> tasks) throws YtDlpException {
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ExecutorService executorService = getTaskExecutor();
         List<Future<Map<String, T>>> futures = new ArrayList<>();
 
         for (Callable<Map<String, T>> task : tasks) {
@@ -353,19 +1240,6 @@ public class YtDlp {
             }
         }
 
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                    System.err.println("Executor service did not terminate");
-                }
-            }
-        } catch (InterruptedException ex) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
-
         return results;
     }
 
@@ -4,12 +4,16 @@ import com.wonkglorg.ytdlp.callback.DownloadEndCallback;
 import com.wonkglorg.ytdlp.callback.DownloadLineCallback;
 import com.wonkglorg.ytdlp.callback.DownloadProgressCallback;
 import com.wonkglorg.ytdlp.callback.DownloadStartCallback;
+import com.wonkglorg.ytdlp.capture.OutputCapture;
+import com.wonkglorg.ytdlp.utils.ProgressTemplate;
+import com.wonkglorg.ytdlp.scheduler.ProcessScheduler;
 
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * YtDlp request
@@ -31,11 +35,37 @@ public class YtDlpRequest implements Cloneable {
      */
     private final Map<String, String> options = new HashMap<>();
 
+    /**
+     * Key the {@link com.wonkglorg.ytdlp.scheduler.ProcessScheduler} limits this request on, derived from the url if not set
+     */
+    private String schedulerKey;
+
+    /**
+     * True to receive progress through {@link ProgressTemplate} instead of parsing the human readable output
+     */
+    private boolean structuredProgress;
+
+    /**
+     * True if yt-dlp runs in quiet mode (implied by --print), it then writes its progress to stderr instead of stdout
+     */
+    private boolean progressOnStderr;
+
+    /**
+     * How stdout and stderr of the process are kept in the response
+     */
+    private OutputCapture outputCapture = OutputCapture.full();
+    private OutputCapture errorCapture = OutputCapture.full();
+
     private DownloadStartCallback downloadStartCallback;
     private DownloadEndCallback downloadEndCallback;
     private DownloadProgressCallback downloadProgressCallback = YtDlp.defaultCallBack();
     private DownloadLineCallback downloadLineCallback;
 
+    /**
+     * Called with the yt-dlp process right after it was started, used to stop it from the outside
+     */
+    private Consumer<Process> processListener;
+
     /**
      * Constructor
      */
@@ -101,6 +131,26 @@ public class YtDlpRequest implements Cloneable {
         return this;
     }
 
+    /**
+     * @return the key the {@link com.wonkglorg.ytdlp.scheduler.ProcessScheduler} limits this request on, the explicitly
+     * set key or the host of the url
+     */
+    public String getSchedulerKey() {
+        return schedulerKey != null ? schedulerKey : ProcessScheduler.keyOf(url);
+    }
+
+    /**
+     * Sets the key the {@link com.wonkglorg.ytdlp.scheduler.ProcessScheduler} limits this request on (for example the
+     * extractor key), defaults to the host of the url
+     *
+     * @param schedulerKey the key, null to derive it from the url
+     * @return YtDlpRequest
+     */
+    public YtDlpRequest setSchedulerKey(String schedulerKey) {
+        this.schedulerKey = schedulerKey;
+        return this;
+    }
+
     /**
      * Gets the options set for this request
      */
@@ -209,6 +259,106 @@ public class YtDlpRequest implements Cloneable {
         this.downloadLineCallback = downloadLineCallback;
     }
 
+    /**
+     * @return the listener called with the yt-dlp process once it was started
+     */
+    public Consumer<Process> getProcessListener() {
+        return processListener;
+    }
+
+    /**
+     * Sets a listener called with the yt-dlp process right after it was started, for example to stop it from another
+     * thread (see {@link com.wonkglorg.ytdlp.handle.DownloadHandle})
+     *
+     * @param processListener the listener, null for none
+     * @return this
+     */
+    public YtDlpRequest setProcessListener(Consumer<Process> processListener) {
+        this.processListener = processListener;
+        return this;
+    }
+
+    /**
+     * @return true if progress is reported through {@link ProgressTemplate}
+     */
+    public boolean isStructuredProgress() {
+        return structuredProgress;
+    }
+
+    /**
+     * Reports download progress in a machine readable format (passed with --progress-template) instead of parsing the
+     * human readable output, the progress callback then also receives the exact byte counts and speed
+     *
+     * @param structuredProgress true to use structured progress
+     * @return this
+     */
+    public YtDlpRequest setStructuredProgress(boolean structuredProgress) {
+        this.structuredProgress = structuredProgress;
+        if (structuredProgress) {
+            options.put("--progress-template", ProgressTemplate.TEMPLATE);
+        } else {
+            options.remove("--progress-template");
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the callbacks are fed from stderr instead of stdout
+     */
+    public boolean isProgressOnStderr() {
+        return progressOnStderr;
+    }
+
+    /**
+     * Feeds the callbacks from stderr instead of stdout, needed when the request runs yt-dlp in quiet mode (for example
+     * through --print) while still asking for --progress, yt-dlp then writes its progress to stderr
+     *
+     * @param progressOnStderr true to read progress from stderr
+     * @return this
+     */
+    public YtDlpRequest setProgressOnStderr(boolean progressOnStderr) {
+        this.progressOnStderr = progressOnStderr;
+        return this;
+    }
+
+    /**
+     * @return how stdout of the process is kept in the response
+     */
+    public OutputCapture getOutputCapture() {
+        return outputCapture;
+    }
+
+    /**
+     * Sets how stdout of the process is kept in the response, defaults to {@link OutputCapture#full()}
+     *
+     * @param outputCapture the capture policy
+     * @return this
+     */
+    public YtDlpRequest setOutputCapture(OutputCapture outputCapture) {
+        this.outputCapture = Objects.requireNonNull(outputCapture);
+        return this;
+    }
+
+    /**
+     * @return how stderr of the process is kept in the response
+     */
+    public OutputCapture getErrorCapture() {
+        return errorCapture;
+    }
+
+    /**
+     * Sets how stderr of the process is kept in the response, defaults to {@link OutputCapture#full()}. The kept output
+     * is also the message of the {@link com.wonkglorg.ytdlp.exception.YtDlpException} thrown if the process fails, a
+     * {@link OutputCapture#tail(int)} keeps the error while bounding verbose output.
+     *
+     * @param errorCapture the capture policy
+     * @return this
+     */
+    public YtDlpRequest setErrorCapture(OutputCapture errorCapture) {
+        this.errorCapture = Objects.requireNonNull(errorCapture);
+        return this;
+    }
+
     /**
      * Transform options to a string that the executable will execute
      *
@@ -252,10 +402,17 @@ public class YtDlpRequest implements Cloneable {
             YtDlpRequest clone = new YtDlpRequest();
             clone.directory = this.directory;
             clone.url = this.url;
+            clone.schedulerKey = this.schedulerKey;
+            clone.structuredProgress = this.structuredProgress;
+            clone.progressOnStderr = this.progressOnStderr;
+            clone.outputCapture = this.outputCapture;
+            clone.errorCapture = this.errorCapture;
             clone.options.putAll(this.options);
             clone.downloadStartCallback = this.downloadStartCallback;
             clone.downloadEndCallback = this.downloadEndCallback;
             clone.downloadProgressCallback = this.downloadProgressCallback;
+            clone.downloadLineCallback = this.downloadLineCallback;
+            clone.processListener = this.processListener;
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
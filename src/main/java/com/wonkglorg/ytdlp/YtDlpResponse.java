@@ -1,18 +1,21 @@
 package com.wonkglorg.ytdlp;
 
+import com.wonkglorg.ytdlp.capture.CapturedOutput;
+
 import java.util.Map;
 import java.util.Objects;
 
 /**
- * YtDlp response
+ * YtDlp response, close it if the request captured its output to a file
+ * ({@link com.wonkglorg.ytdlp.capture.OutputCapture#file()})
  */
-public class YtDlpResponse {
+public class YtDlpResponse implements AutoCloseable {
 
     private Map<String, String> options;
     private String command;
     private int exitCode;
-    private String out;
-    private String err;
+    private CapturedOutput out;
+    private CapturedOutput err;
     private String directory;
     private int elapsedTime;
 
@@ -24,6 +27,17 @@ public class YtDlpResponse {
             int elapsedTime,
             String out,
             String err) {
+        this(command, options, directory, exitCode, elapsedTime, CapturedOutput.of(out), CapturedOutput.of(err));
+    }
+
+    public YtDlpResponse(
+            String command,
+            Map<String, String> options,
+            String directory,
+            int exitCode,
+            int elapsedTime,
+            CapturedOutput out,
+            CapturedOutput err) {
         this.command = command;
         this.options = options;
         this.directory = directory;
@@ -41,11 +55,31 @@ public class YtDlpResponse {
         return exitCode;
     }
 
+    /**
+     * @return stdout as a string, reads file backed output into memory, see {@link #getOutput()}
+     */
     public String getOut() {
-        return out;
+        return out.asString();
     }
 
+    /**
+     * @return stderr as a string, reads file backed output into memory, see {@link #getError()}
+     */
     public String getErr() {
+        return err.asString();
+    }
+
+    /**
+     * @return stdout as kept by the {@link YtDlpRequest#setOutputCapture(com.wonkglorg.ytdlp.capture.OutputCapture) capture policy}
+     */
+    public CapturedOutput getOutput() {
+        return out;
+    }
+
+    /**
+     * @return stderr as kept by the {@link YtDlpRequest#setErrorCapture(com.wonkglorg.ytdlp.capture.OutputCapture) capture policy}
+     */
+    public CapturedOutput getError() {
         return err;
     }
 
@@ -61,6 +95,15 @@ public class YtDlpResponse {
         return elapsedTime;
     }
 
+    /**
+     * Releases the captured output, deleting temp files
+     */
+    @Override
+    public void close() {
+        out.close();
+        err.close();
+    }
+
     @Override
     public String toString() {
         return "YtDlpResponse{" +
@@ -0,0 +1,141 @@
+package com.wonkglorg.ytdlp.archive;
+
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Record of downloaded videos in the format of yt-dlp's {@code --download-archive} file (one "extractor id" line per
+ * video, for example "youtube dQw4w9WgXcQ"), so the same file can be shared with yt-dlp itself.
+ * <br>
+ * The entries are held in memory, checking a video does not need a yt-dlp process. New entries are appended to the
+ * file with a single write each, a line torn by a crash can only be the last one and is ignored on load.
+ */
+public class DownloadArchive {
+    private final Path file;
+    private final Set<String> entries = new HashSet<>();
+    /**
+     * True if the file ends with a torn entry, the next entry has to start on a new line
+     */
+    private boolean unterminated;
+
+    private DownloadArchive(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads an archive file, creating it on the first added entry if it does not exist
+     *
+     * @param file the archive file
+     * @return the archive
+     * @throws YtDlpException if the file could not be read
+     */
+    public static DownloadArchive load(Path file) throws YtDlpException {
+        DownloadArchive archive = new DownloadArchive(file);
+        if (!Files.exists(file)) return archive;
+        String content;
+        try {
+            content = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+
+        if (content.isEmpty()) return archive;
+        String[] lines = content.split("\n");
+        // every complete entry ends with a line break, an unterminated last line is a torn write
+        int complete = content.endsWith("\n") ? lines.length : lines.length - 1;
+        archive.unterminated = complete < lines.length;
+        for (int i = 0; i < complete; i++) {
+            String entry = lines[i].trim();
+            if (!entry.isEmpty()) archive.entries.add(entry);
+        }
+        return archive;
+    }
+
+    /**
+     * @param extractor the extractor key, for example "Youtube" (case insensitive)
+     * @param id        the video id
+     * @return true if the video is archived
+     */
+    public synchronized boolean contains(String extractor, String id) {
+        if (extractor == null || id == null) return false;
+        return entries.contains(entry(extractor, id));
+    }
+
+    /**
+     * @return true if the video is archived
+     */
+    public boolean contains(VideoInfo videoInfo) {
+        return contains(videoInfo.getExtractorKey(), videoInfo.getId());
+    }
+
+    /**
+     * @return true if the video is archived
+     */
+    public boolean contains(VideoPreviewInfo videoInfo) {
+        return contains(videoInfo.getIeKey(), videoInfo.getId());
+    }
+
+    /**
+     * Archives a video, does nothing if it already is
+     *
+     * @param extractor the extractor key, for example "Youtube" (case insensitive)
+     * @param id        the video id
+     * @throws YtDlpException if the entry could not be written
+     */
+    public synchronized void add(String extractor, String id) throws YtDlpException {
+        if (extractor == null || id == null) return;
+        String entry = entry(extractor, id);
+        if (entries.contains(entry)) return;
+
+        ByteBuffer line = ByteBuffer.wrap(((unterminated ? "\n" : "") + entry + "\n").getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (line.hasRemaining()) channel.write(line);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+        entries.add(entry);
+        unterminated = false;
+    }
+
+    /**
+     * Archives a video, see {@link #add(String, String)}
+     */
+    public void add(VideoInfo videoInfo) throws YtDlpException {
+        add(videoInfo.getExtractorKey(), videoInfo.getId());
+    }
+
+    /**
+     * Archives a video, see {@link #add(String, String)}
+     */
+    public void add(VideoPreviewInfo videoInfo) throws YtDlpException {
+        add(videoInfo.getIeKey(), videoInfo.getId());
+    }
+
+    /**
+     * @return number of archived videos
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static String entry(String extractor, String id) {
+        return extractor.toLowerCase(Locale.ROOT) + " " + id;
+    }
+}
@@ -2,27 +2,49 @@ package com.wonkglorg.ytdlp.builder;
 
 import com.wonkglorg.ytdlp.YtDlp;
 import com.wonkglorg.ytdlp.YtDlpRequest;
+import com.wonkglorg.ytdlp.YtDlpResponse;
+import com.wonkglorg.ytdlp.archive.DownloadArchive;
+import com.wonkglorg.ytdlp.cache.CacheKeys;
 import com.wonkglorg.ytdlp.callback.DownloadEndCallback;
 import com.wonkglorg.ytdlp.callback.DownloadProgressCallback;
 import com.wonkglorg.ytdlp.callback.DownloadStartCallback;
+import com.wonkglorg.ytdlp.capture.CapturedOutput;
+import com.wonkglorg.ytdlp.capture.OutputCapture;
 import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.handle.DownloadHandle;
+import com.wonkglorg.ytdlp.journal.Job;
+import com.wonkglorg.ytdlp.journal.JobJournal;
+import com.wonkglorg.ytdlp.journal.JournalStats;
+import com.wonkglorg.ytdlp.mapper.DownloadResult;
+import com.wonkglorg.ytdlp.mapper.JsonReaders;
+import com.wonkglorg.ytdlp.mapper.PlaylistDiff;
+import com.wonkglorg.ytdlp.mapper.PlaylistDownloadResult;
 import com.wonkglorg.ytdlp.mapper.PlaylistInfoData;
 import com.wonkglorg.ytdlp.mapper.VideoFileInfo;
 import com.wonkglorg.ytdlp.mapper.json.PlaylistInfo;
 import com.wonkglorg.ytdlp.mapper.json.PlaylistPreviewInfo;
 import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
 import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+import com.wonkglorg.ytdlp.sync.PlaylistSync;
 import com.wonkglorg.ytdlp.utils.FormatOption;
+import com.wonkglorg.ytdlp.utils.SharedExecutors;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.*;
-import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static com.wonkglorg.ytdlp.YtDlp.*;
 
@@ -40,6 +62,10 @@ public class DownloadBuilder {
      * The Pattern to identify the output filename for audio only downloads
      */
     private static final Pattern outputFileNameAudioPattern = Pattern.compile("\\[ExtractAudio] Destination: (?<filename>.+)");
+    /**
+     * Prefix of the line printed with the final file path in single process mode
+     */
+    private static final String FILEPATH_MARKER = "[yt-dlp-java:filepath]";
     /**
      * The url to download
      */
@@ -72,6 +98,38 @@ public class DownloadBuilder {
      * True to download playlist videos into a subdirectory named after the playlist
      */
     private boolean subDirectoryPlaylist = false;
+    /**
+     * True to extract the video information and download in the same yt-dlp process
+     */
+    private boolean singleProcess = false;
+    /**
+     * True to receive progress in a machine readable format instead of parsing the human readable output
+     */
+    private boolean structuredProgress = false;
+    /**
+     * How the output of the download processes is kept while searching it for the downloaded file
+     */
+    private OutputCapture outputCapture = OutputCapture.full();
+    /**
+     * True to run parallel playlist downloads on virtual threads, false to use {@link YtDlp#getTaskExecutor()}
+     */
+    private boolean virtualThreads = false;
+    /**
+     * The executor parallel downloads run on, null to use the shared executors
+     */
+    private ExecutorService executor = null;
+    /**
+     * Archive of downloaded videos, archived playlist entries are skipped, null to download every entry
+     */
+    private DownloadArchive downloadArchive = null;
+    /**
+     * Maximum time a download started with {@link #startDownload()} may take, null for none
+     */
+    private Duration timeout = null;
+    /**
+     * Maximum time a download started with {@link #startDownload()} may go without progress, null for none
+     */
+    private Duration stallTimeout = null;
 
 
     public DownloadBuilder(String url, String outputDir) {
@@ -152,15 +210,156 @@ public class DownloadBuilder {
         return this;
     }
 
+    /**
+     * Extracts the video information and downloads in a single yt-dlp process in {@link #download()} instead of running
+     * a separate extraction first, roughly halving the time per video. Requires a yt-dlp version supporting
+     * {@code --print after_move:}, the header information passed to the download start callback is not available in this mode
+     *
+     * @param singleProcess true to use a single process
+     * @return this
+     */
+    public DownloadBuilder setSingleProcess(boolean singleProcess) {
+        this.singleProcess = singleProcess;
+        return this;
+    }
+
+    /**
+     * Reports progress through --progress-template instead of parsing the human readable output, the progress callback
+     * then also receives the exact byte counts and speed, see {@link YtDlpRequest#setStructuredProgress(boolean)}
+     *
+     * @param structuredProgress true to use structured progress
+     * @return this
+     */
+    public DownloadBuilder setStructuredProgress(boolean structuredProgress) {
+        this.structuredProgress = structuredProgress;
+        return this;
+    }
+
+    /**
+     * Sets how the output of each download process is kept until the downloaded file was found in it, see
+     * {@link YtDlpRequest#setOutputCapture(OutputCapture)}. {@link OutputCapture#file()} keeps verbose progress output
+     * off the heap, a {@link OutputCapture#tail(int)} may drop the lines naming the downloaded file.
+     *
+     * @param outputCapture the capture policy
+     * @return this
+     */
+    public DownloadBuilder setOutputCapture(OutputCapture outputCapture) {
+        this.outputCapture = outputCapture;
+        return this;
+    }
+
+    /**
+     * Runs parallel playlist downloads on virtual threads (one per video) instead of the shared pool of platform threads,
+     * requires Java 21+ (falls back to the shared pool otherwise). Without this parallel downloads run on
+     * {@link YtDlp#getTaskExecutor()}, which follows {@link YtDlp#setUseVirtualThreads(boolean)} and
+     * {@link YtDlp#setTaskExecutor(ExecutorService)}. Ignored if an executor was set with {@link #setExecutor(ExecutorService)}
+     *
+     * @param virtualThreads true to use virtual threads
+     * @return this
+     */
+    public DownloadBuilder setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Sets the executor parallel playlist downloads run on, its lifecycle is managed by the caller (defaults to
+     * {@link YtDlp#getTaskExecutor()})
+     *
+     * @param executor the executor, null to use the shared executors
+     * @return this
+     */
+    public DownloadBuilder setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the archive of downloaded videos, playlist entries found in it are skipped before any download is started and
+     * every finished download is added to it
+     *
+     * @param downloadArchive the archive, null to download every entry
+     * @return this
+     */
+    public DownloadBuilder setDownloadArchive(DownloadArchive downloadArchive) {
+        this.downloadArchive = downloadArchive;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time a download started with {@link #startDownload()} may take before it is stopped
+     *
+     * @param timeout the timeout, null for none
+     * @return this
+     */
+    public DownloadBuilder setTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time a download started with {@link #startDownload()} may go without progress or output before
+     * it is stopped
+     *
+     * @param stallTimeout the timeout, null for none
+     * @return this
+     */
+    public DownloadBuilder setStallTimeout(Duration stallTimeout) {
+        this.stallTimeout = stallTimeout;
+        return this;
+    }
+
     /**
      * Downloads a single video (if the url points to a playlist, the first video will be downloaded)
      *
      * @return the video info
      */
     public VideoFileInfo<VideoInfo> download() {
-        Optional<VideoInfo> videoInfoOptional = getVideoInfo(requestBuilder().getUrl());
+        return download(requestBuilder());
+    }
+
+    /**
+     * Starts downloading a single video in the background (if the url points to a playlist, the first video will be
+     * downloaded), the returned handle can cancel it and applies the {@link #setTimeout(Duration) timeout} and
+     * {@link #setStallTimeout(Duration) stall timeout}
+     *
+     * @return the handle of the download
+     */
+    public DownloadHandle<VideoFileInfo<VideoInfo>> startDownload() {
+        return DownloadHandle.start(requestBuilder(), timeout, stallTimeout, taskExecutor(), this::download);
+    }
+
+    private VideoFileInfo<VideoInfo> download(YtDlpRequest request) throws YtDlpException {
+        if (singleProcess) {
+            return DownloadFlights.run(flightKey(request, VideoInfo.class), request, () -> downloadSingleProcess(request));
+        }
+        Optional<VideoInfo> videoInfoOptional = getVideoInfo(request.getUrl());
         if (videoInfoOptional.isEmpty()) throw new YtDlpException("Video not found");
-        return download(videoInfoOptional.get(), requestBuilder());
+        return download(videoInfoOptional.get(), request);
+    }
+
+    /**
+     * Streams a single video to the channel instead of saving it in the output directory (if the url points to a
+     * playlist, the first video is streamed). Only {@link FormatOption#isStreamable() streamable} formats are supported,
+     * the progress callbacks are still called.
+     *
+     * @param channel the channel receiving the media, not closed
+     * @return the amount of bytes written
+     * @throws YtDlpException if the format can not be streamed or the download failed
+     */
+    public long streamTo(WritableByteChannel channel) throws YtDlpException {
+        return YtDlp.executeToChannel(streamRequest(), channel);
+    }
+
+    /**
+     * Same as {@link #streamTo(WritableByteChannel)} writing to a stream
+     *
+     * @param stream the stream receiving the media, not closed
+     * @return the amount of bytes written
+     * @throws YtDlpException if the format can not be streamed or the download failed
+     */
+    public long streamTo(OutputStream stream) throws YtDlpException {
+        return YtDlp.executeToStream(streamRequest(), stream);
     }
 
     /**
@@ -173,7 +372,25 @@ public class DownloadBuilder {
      * @throws YtDlpException when the playlist is not found / the url is not a playlist for non playlist urls use {@link #download()} instead
      */
     public PlaylistInfoData<PlaylistInfo, VideoInfo> downloadPlaylist(boolean parallel) {
-        return downloadPlaylist(requestBuilder(), subDirectoryPlaylist, parallel, this::download);
+        PlaylistTasks<PlaylistInfo, VideoInfo> playlistTasks = playlistTasks(requestBuilder(), subDirectoryPlaylist);
+        return new PlaylistInfoData<>(playlistTasks.playlist(), collectTasks(playlistTasks.tasks(), parallel));
+    }
+
+    /**
+     * Downloads a playlist passing every downloaded video to the consumer as soon as it finished, in parallel mode this is
+     * completion order so one slow video does not hold back the others. Results are not kept once passed to the consumer.
+     * <br>
+     * When the url points to a video as part of a playlist, the whole playlist will be downloaded
+     *
+     * @param parallel     true to download videos in parallel (causes issues with the default progress callback implementation)
+     * @param onDownloaded called on the calling thread for every downloaded video
+     * @return the playlist info
+     * @throws YtDlpException when the playlist is not found / the url is not a playlist for non playlist urls use {@link #download()} instead
+     */
+    public PlaylistInfo downloadPlaylist(boolean parallel, Consumer<VideoFileInfo<VideoInfo>> onDownloaded) {
+        PlaylistTasks<PlaylistInfo, VideoInfo> playlistTasks = playlistTasks(requestBuilder(), subDirectoryPlaylist);
+        streamTasks(playlistTasks.tasks(), parallel, onDownloaded);
+        return playlistTasks.playlist();
     }
 
     /**
@@ -186,15 +403,150 @@ public class DownloadBuilder {
      * @throws YtDlpException when the playlist is not found / the url is not a playlist for non playlist urls use {@link #download()} instead
      */
     public PlaylistInfoData<PlaylistPreviewInfo, VideoPreviewInfo> downloadPlaylistShortened(boolean parallel) throws YtDlpException {
-        return downloadPlaylistShortened(requestBuilder(), subDirectoryPlaylist, parallel, this::download);
+        PlaylistTasks<PlaylistPreviewInfo, VideoPreviewInfo> playlistTasks = playlistTasksShortened(requestBuilder(), subDirectoryPlaylist);
+        return new PlaylistInfoData<>(playlistTasks.playlist(), collectTasks(playlistTasks.tasks(), parallel));
     }
 
+    /**
+     * Downloads a playlist with shortened video info passing every downloaded video to the consumer as soon as it finished,
+     * see {@link #downloadPlaylist(boolean, Consumer)}
+     *
+     * @param parallel     true to download videos in parallel (causes issues with the default progress callback implementation)
+     * @param onDownloaded called on the calling thread for every downloaded video
+     * @return the playlist info
+     * @throws YtDlpException when the playlist is not found / the url is not a playlist for non playlist urls use {@link #download()} instead
+     */
+    public PlaylistPreviewInfo downloadPlaylistShortened(boolean parallel, Consumer<VideoFileInfo<VideoPreviewInfo>> onDownloaded) throws YtDlpException {
+        PlaylistTasks<PlaylistPreviewInfo, VideoPreviewInfo> playlistTasks = playlistTasksShortened(requestBuilder(), subDirectoryPlaylist);
+        streamTasks(playlistTasks.tasks(), parallel, onDownloaded);
+        return playlistTasks.playlist();
+    }
+
+
+    /**
+     * Downloads a playlist without failing as a whole when single entries fail, the result contains the outcome of every
+     * entry in playlist order
+     * <br>
+     * When the url points to a video as part of a playlist, the whole playlist will be downloaded
+     *
+     * @param parallel true to download videos in parallel (causes issues with the default progress callback implementation)
+     * @param policy   what happens to the other entries when one fails
+     * @return the playlist info and the outcome of every entry
+     * @throws YtDlpException when the playlist is not found / the url is not a playlist for non playlist urls use {@link #download()} instead
+     */
+    public PlaylistDownloadResult<PlaylistInfo, VideoInfo> downloadPlaylistBatch(boolean parallel, FailurePolicy policy) throws YtDlpException {
+        PlaylistTasks<PlaylistInfo, VideoInfo> playlistTasks = playlistTasks(requestBuilder(), subDirectoryPlaylist);
+        return new PlaylistDownloadResult<>(playlistTasks.playlist(), batchTasks(playlistTasks, parallel, policy));
+    }
+
+    /**
+     * Downloads a playlist with shortened video info without failing as a whole when single entries fail, see
+     * {@link #downloadPlaylistBatch(boolean, FailurePolicy)}
+     *
+     * @param parallel true to download videos in parallel (causes issues with the default progress callback implementation)
+     * @param policy   what happens to the other entries when one fails
+     * @return the playlist info and the outcome of every entry
+     * @throws YtDlpException when the playlist is not found / the url is not a playlist for non playlist urls use {@link #download()} instead
+     */
+    public PlaylistDownloadResult<PlaylistPreviewInfo, VideoPreviewInfo> downloadPlaylistShortenedBatch(boolean parallel, FailurePolicy policy) throws YtDlpException {
+        PlaylistTasks<PlaylistPreviewInfo, VideoPreviewInfo> playlistTasks = playlistTasksShortened(requestBuilder(), subDirectoryPlaylist);
+        return new PlaylistDownloadResult<>(playlistTasks.playlist(), batchTasks(playlistTasks, parallel, policy));
+    }
+
+    /**
+     * Downloads the entries added to a playlist since the last sync, only the flat playlist listing is fetched so the
+     * cost scales with the number of new entries. Successfully downloaded entries are marked as seen, entries that
+     * failed are downloaded again on the next sync.
+     * <br>
+     * The playlist url of the sync is used, the url of this builder is ignored
+     *
+     * @param sync     the sync state of the playlist
+     * @param parallel true to download videos in parallel (causes issues with the default progress callback implementation)
+     * @return the current playlist listing and the outcome of every added entry
+     * @throws YtDlpException when the playlist is not found or the sync state could not be saved
+     */
+    public PlaylistDownloadResult<PlaylistPreviewInfo, VideoPreviewInfo> syncPlaylist(PlaylistSync sync, boolean parallel) throws YtDlpException {
+        PlaylistDiff diff = sync.fetchDiff();
+        YtDlpRequest request = requestBuilder().setUrl(sync.getUrl());
+        PlaylistTasks<PlaylistPreviewInfo, VideoPreviewInfo> playlistTasks = playlistTasksShortened(request, diff.playlist(), notArchived(diff.added()), subDirectoryPlaylist);
+        List<DownloadResult<VideoPreviewInfo>> results = batchTasks(playlistTasks, parallel, FailurePolicy.CONTINUE);
+
+        List<String> downloadedIds = new ArrayList<>();
+        for (DownloadResult<VideoPreviewInfo> result : results) {
+            if (result.isSuccess()) downloadedIds.add(result.videoInfo().getId());
+        }
+        // skipped entries were downloaded before
+        if (downloadArchive != null) {
+            for (VideoPreviewInfo entry : diff.added()) {
+                if (isArchived(entry)) downloadedIds.add(entry.getId());
+            }
+        }
+        sync.markSeen(downloadedIds);
+        sync.forget(diff.removedIds());
+        return new PlaylistDownloadResult<>(diff.playlist(), results);
+    }
+
+    /**
+     * Downloads every pending job of the journal, the url of this builder is ignored. Finished and failed jobs are
+     * recorded in the journal as they complete, so after a crash or restart calling this again continues with the jobs
+     * that did not finish, interrupted downloads resume from their partial files.
+     *
+     * @param journal the journal to take the jobs from
+     * @param workers number of downloads running at the same time
+     * @return the job counts once no job is pending
+     * @throws YtDlpException if the journal could not be written or a worker was interrupted, failed downloads do not throw
+     */
+    public JournalStats downloadJournal(JobJournal journal, int workers) throws YtDlpException {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be greater than 0");
+        Callable<Void> worker = () -> {
+            for (Optional<Job> job = journal.next(); job.isPresent(); job = journal.next()) {
+                YtDlpRequest request = requestBuilder().setUrl(job.get().url());
+                request.addOption("--continue");
+                try {
+                    download(request);
+                    journal.finish(job.get());
+                } catch (YtDlpException e) {
+                    journal.fail(job.get(), e.getMessage());
+                }
+            }
+            return null;
+        };
+
+        if (workers == 1) {
+            try {
+                worker.call();
+            } catch (Exception e) {
+                throw e instanceof YtDlpException ytDlpException ? ytDlpException : new YtDlpException(e);
+            }
+            return journal.getStats();
+        }
+
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(taskExecutor().submit(worker));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof YtDlpException ytDlpException ? ytDlpException : new YtDlpException(e);
+        }
+        return journal.getStats();
+    }
 
     private YtDlpRequest requestBuilder() {
         YtDlpRequest request = new YtDlpRequest(url, outputDir);
         request.setDownloadStartCallback(downloadStartCallback);
         request.setDownloadProgressCallback(downloadProgressCallback);
         request.setDownloadEndCallback(downloadEndCallback);
+        request.setStructuredProgress(structuredProgress);
+        request.setOutputCapture(outputCapture);
         for (String param : formatOption.getParams()) {
             request.addOption(param);
         }
@@ -203,88 +555,293 @@ public class DownloadBuilder {
         return request;
     }
 
-    private PlaylistInfoData<PlaylistInfo, VideoInfo> downloadPlaylist(YtDlpRequest request, boolean subDirectoryPlaylist, boolean parallel, BiFunction<VideoInfo, YtDlpRequest, VideoFileInfo<VideoInfo>> downloader) throws YtDlpException {
-        PlaylistInfo playlistInfo = getPlaylistInfo(request.getUrl()).orElseThrow(() -> new YtDlpException("Playlist not found"));
-        List<VideoInfo> videoInfos = playlistInfo.getEntries();
+    private YtDlpRequest streamRequest() throws YtDlpException {
+        if (!formatOption.isStreamable()) {
+            throw new YtDlpException(formatOption + " needs post processing and can not be streamed, use a single file format such as MP4 or WEBM");
+        }
+        YtDlpRequest request = new YtDlpRequest(url, outputDir);
+        request.setDownloadStartCallback(downloadStartCallback);
+        request.setDownloadProgressCallback(downloadProgressCallback);
+        request.setDownloadEndCallback(downloadEndCallback);
+        request.setStructuredProgress(structuredProgress);
+        // stderr carries the progress output of the whole download, only its end is needed for errors
+        request.setErrorCapture(OutputCapture.tail(64));
+        request.addOption("--no-playlist");
+        request.addOption("--playlist-items", "1");
+        request.addOption("--format", formatOption.getStreamFormat());
+        return request;
+    }
 
+    /**
+     * A playlist and the download task of each of its entries in playlist order
+     */
+    private record PlaylistTasks<P, T>(P playlist, List<T> entries, List<Callable<VideoFileInfo<T>>> tasks) {
+    }
+
+    private PlaylistTasks<PlaylistInfo, VideoInfo> playlistTasks(YtDlpRequest request, boolean subDirectoryPlaylist) throws YtDlpException {
+        PlaylistInfo playlistInfo = getPlaylistInfo(request.getUrl()).orElseThrow(() -> new YtDlpException("Playlist not found"));
+        List<VideoInfo> videoInfos = notArchived(playlistInfo.getEntries());
 
         String path = request.getDirectory();
         if (subDirectoryPlaylist) path = path + "\\" + playlistInfo.getTitle();
         Path.of(path).toFile().mkdirs();
 
-        System.out.println("Downloading " + playlistInfo.getEntries().size() + " videos");
-        if (!parallel) {
-            List<VideoFileInfo<VideoInfo>> results = new ArrayList<>();
-            for (VideoInfo videoInfo : videoInfos) {
-                results.add(downloader.apply(videoInfo, request.clone().setDirectory(path).setUrl(videoInfo.getOriginalUrl())));
-            }
-            return new PlaylistInfoData<>(playlistInfo, results);
-        }
-
         List<Callable<VideoFileInfo<VideoInfo>>> tasks = new ArrayList<>();
 
         String finalPath = path;
         for (VideoInfo videoInfo : videoInfos) {
-            tasks.add(() -> downloader.apply(videoInfo, request.clone().setDirectory(finalPath).setUrl(videoInfo.getOriginalUrl())));
+            tasks.add(() -> download(videoInfo, request.clone().setDirectory(finalPath).setUrl(videoInfo.getOriginalUrl())));
         }
 
-
-        return new PlaylistInfoData<>(playlistInfo, executeTasks(tasks));
+        log.info("Downloading " + videoInfos.size() + " videos");
+        return new PlaylistTasks<>(playlistInfo, videoInfos, tasks);
     }
 
-    private PlaylistInfoData<PlaylistPreviewInfo, VideoPreviewInfo> downloadPlaylistShortened(YtDlpRequest request, boolean subDirectoryPlaylist, boolean parallel, BiFunction<VideoPreviewInfo, YtDlpRequest, VideoFileInfo<VideoPreviewInfo>> downloader) throws YtDlpException {
+    private PlaylistTasks<PlaylistPreviewInfo, VideoPreviewInfo> playlistTasksShortened(YtDlpRequest request, boolean subDirectoryPlaylist) throws YtDlpException {
         PlaylistPreviewInfo playlistInfo = getPlaylistPreviewInfo(request.getUrl()).orElseThrow(() -> new YtDlpException("Playlist not found"));
         List<VideoPreviewInfo> videoInfos = playlistInfo.getEntries();
         if (videoInfos == null || videoInfos.isEmpty()) throw new YtDlpException("Not a Playlist!");
+        return playlistTasksShortened(request, playlistInfo, notArchived(videoInfos), subDirectoryPlaylist);
+    }
+
+    private PlaylistTasks<PlaylistPreviewInfo, VideoPreviewInfo> playlistTasksShortened(YtDlpRequest request, PlaylistPreviewInfo playlistInfo, List<VideoPreviewInfo> videoInfos, boolean subDirectoryPlaylist) {
         String path = request.getDirectory();
         if (subDirectoryPlaylist) path = path + "\\" + playlistInfo.getTitle();
         Path.of(path).toFile().mkdirs();
 
+        List<Callable<VideoFileInfo<VideoPreviewInfo>>> tasks = new ArrayList<>();
+
+        String finalPath = path;
+        for (VideoPreviewInfo videoInfo : videoInfos) {
+            tasks.add(() -> download(videoInfo, request.clone().setDirectory(finalPath).setUrl(videoInfo.getUrl())));
+        }
+
+        log.info("Downloading " + videoInfos.size() + " videos");
+        return new PlaylistTasks<>(playlistInfo, videoInfos, tasks);
+    }
+
+    /**
+     * @return the entries not found in the {@link #downloadArchive}
+     */
+    private <T> List<T> notArchived(List<T> entries) {
+        if (downloadArchive == null) return entries;
+        List<T> remaining = new ArrayList<>();
+        for (T entry : entries) {
+            if (!isArchived(entry)) remaining.add(entry);
+        }
+        if (remaining.size() < entries.size()) {
+            log.info("Skipping " + (entries.size() - remaining.size()) + " videos found in the download archive");
+        }
+        return remaining;
+    }
+
+    private boolean isArchived(Object info) {
+        if (info instanceof VideoInfo videoInfo) return downloadArchive.contains(videoInfo);
+        if (info instanceof VideoPreviewInfo previewInfo) return downloadArchive.contains(previewInfo);
+        return false;
+    }
+
+    private void archive(Object info) throws YtDlpException {
+        if (downloadArchive == null) return;
+        if (info instanceof VideoInfo videoInfo) downloadArchive.add(videoInfo);
+        else if (info instanceof VideoPreviewInfo previewInfo) downloadArchive.add(previewInfo);
+    }
+
+    /**
+     * Runs the tasks and collects their results in playlist order
+     */
+    private <T> List<VideoFileInfo<T>> collectTasks(List<Callable<VideoFileInfo<T>>> tasks, boolean parallel) throws YtDlpException {
+        if (parallel) return executeTasks(tasks, taskExecutor());
+
+        List<VideoFileInfo<T>> results = new ArrayList<>();
+        for (Callable<VideoFileInfo<T>> task : tasks) {
+            results.add(call(task));
+        }
+        return results;
+    }
+
+    /**
+     * Runs the tasks passing each result to the consumer as soon as it is available
+     */
+    private <T> void streamTasks(List<Callable<VideoFileInfo<T>>> tasks, boolean parallel, Consumer<VideoFileInfo<T>> consumer) throws YtDlpException {
+        if (parallel) {
+            executeTasks(tasks, taskExecutor(), consumer);
+            return;
+        }
+        for (Callable<VideoFileInfo<T>> task : tasks) {
+            consumer.accept(call(task));
+        }
+    }
+
+    /**
+     * Runs the tasks collecting the outcome of each one in playlist order
+     */
+    private <T> List<DownloadResult<T>> batchTasks(PlaylistTasks<?, T> playlistTasks, boolean parallel, FailurePolicy policy) throws YtDlpException {
+        List<T> entries = playlistTasks.entries();
+        List<Callable<VideoFileInfo<T>>> tasks = playlistTasks.tasks();
+
         if (!parallel) {
-            List<VideoFileInfo<VideoPreviewInfo>> results = new ArrayList<>();
-            for (VideoPreviewInfo videoInfo : videoInfos) {
-                results.add(downloader.apply(videoInfo, request.clone().setDirectory(path).setUrl(videoInfo.getUrl())));
+            List<DownloadResult<T>> results = new ArrayList<>();
+            boolean cancelled = false;
+            for (int i = 0; i < tasks.size(); i++) {
+                if (cancelled) {
+                    results.add(DownloadResult.failure(entries.get(i), cancelledError()));
+                    continue;
+                }
+                try {
+                    results.add(DownloadResult.success(tasks.get(i).call()));
+                } catch (Exception e) {
+                    results.add(DownloadResult.failure(entries.get(i), e));
+                    cancelled = policy == FailurePolicy.CANCEL_REMAINING;
+                }
             }
-            return new PlaylistInfoData<>(playlistInfo, results);
+            return results;
         }
 
-        List<Callable<VideoFileInfo<VideoPreviewInfo>>> tasks = new ArrayList<>();
+        CompletionService<VideoFileInfo<T>> completionService = new ExecutorCompletionService<>(taskExecutor());
+        List<Future<VideoFileInfo<T>>> futures = new ArrayList<>();
+        for (Callable<VideoFileInfo<T>> task : tasks) {
+            futures.add(completionService.submit(task));
+        }
 
-        String finalPath = path;
-        for (VideoPreviewInfo videoInfo : videoInfos) {
-            tasks.add(() -> downloader.apply(videoInfo, request.clone().setDirectory(finalPath).setUrl(videoInfo.getUrl())));
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                Future<VideoFileInfo<T>> future = completionService.take();
+                if (policy == FailurePolicy.CANCEL_REMAINING && !future.isCancelled() && failed(future)) {
+                    futures.forEach(other -> other.cancel(true));
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
         }
 
-        System.out.println("Downloading " + playlistInfo.getEntries().size() + " videos");
+        List<DownloadResult<T>> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<VideoFileInfo<T>> future = futures.get(i);
+            if (future.isCancelled()) {
+                results.add(DownloadResult.failure(entries.get(i), cancelledError()));
+                continue;
+            }
+            try {
+                results.add(DownloadResult.success(future.get()));
+            } catch (ExecutionException e) {
+                results.add(DownloadResult.failure(entries.get(i), e.getCause()));
+            } catch (InterruptedException e) {
+                // all futures are done at this point
+                Thread.currentThread().interrupt();
+                throw new YtDlpException(e);
+            }
+        }
+        return results;
+    }
 
-        return new PlaylistInfoData<>(playlistInfo, executeTasks(tasks));
+    /**
+     * @return true if the completed future failed
+     */
+    private static boolean failed(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
 
+    private static CancellationException cancelledError() {
+        return new CancellationException("Cancelled after another entry failed");
+    }
+
+    private static <T> T call(Callable<T> task) throws YtDlpException {
+        try {
+            return task.call();
+        } catch (YtDlpException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new YtDlpException(e);
+        }
     }
 
     /**
-     * Helper method to download media
+     * Downloads a single video printing its json information and final file path from the same process
+     */
+    private VideoFileInfo<VideoInfo> downloadSingleProcess(YtDlpRequest request) throws YtDlpException {
+        request.addOption("--no-playlist");
+        request.addOption("--playlist-items", "1");
+        request.addOption("--dump-json");
+        request.addOption("--no-simulate");
+        // printing implies quiet mode, yt-dlp then still reports progress with --progress but writes it to stderr
+        request.addOption("--progress");
+        request.setProgressOnStderr(true);
+        request.addOption("--print", "after_move:" + FILEPATH_MARKER + "%(filepath)s");
+        VideoInfo videoInfo = null;
+        String filePath = null;
+        try (YtDlpResponse response = YtDlp.execute(request); Stream<String> lines = response.getOutput().lines()) {
+            for (Iterator<String> iterator = lines.iterator(); iterator.hasNext(); ) {
+                String line = iterator.next();
+                if (videoInfo == null && line.startsWith("{")) {
+                    try {
+                        videoInfo = JsonReaders.read(line, VideoInfo.class);
+                    } catch (IOException e) {
+                        throw new YtDlpException("Unable to parse video information: " + e.getMessage());
+                    }
+                } else if (line.startsWith(FILEPATH_MARKER)) {
+                    filePath = line.substring(FILEPATH_MARKER.length());
+                }
+            }
+        }
+        if (videoInfo == null) throw new YtDlpException("Video not found");
+
+        Path path = Path.of(request.getDirectory());
+        if (filePath == null) {
+            log.warning("Could not extract filename from output, using default video title instead (File output reference could point to a wrong location)");
+            path = path.resolve(videoInfo.getTitle() + "." + formatOption.getExtension());
+        } else {
+            path = path.resolve(filePath);
+        }
+        archive(videoInfo);
+        return new VideoFileInfo<>(path.toFile(), videoInfo);
+    }
+
+    /**
+     * Helper method to download media, attaches to an identical download if one is already running
      */
     private <T> VideoFileInfo<T> download(T info, YtDlpRequest request) throws YtDlpException {
-        var response = YtDlp.execute(request);
+        return DownloadFlights.run(flightKey(request, info.getClass()), request, () -> runDownload(info, request));
+    }
+
+    /**
+     * @return the key identifying identical downloads of the request
+     */
+    private DownloadFlights.Key flightKey(YtDlpRequest request, Class<?> infoType) {
+        String output = Path.of(request.getDirectory()).toAbsolutePath().normalize() + File.separator + outputName;
+        return new DownloadFlights.Key(CacheKeys.video(request.getUrl()), formatOption.name(), output, infoType);
+    }
+
+    private <T> VideoFileInfo<T> runDownload(T info, YtDlpRequest request) throws YtDlpException {
         Path path = Path.of(request.getDirectory());
 
-        String outputFileName = hasFileBeenDownloaded(response.getOut());
+        String outputFileName;
+        String outputFile;
+        try (YtDlpResponse response = YtDlp.execute(request)) {
+            outputFileName = hasFileBeenDownloaded(response.getOutput());
+            outputFile = outputFileName == null ? extractFileName(response.getOutput()) : null;
+        }
         if (outputFileName != null) {
             path = path.resolve(outputFileName);
             log.warning("File has already been downloaded");
-        } else {
-            String outputFile = extractFileName(response.getOut());
-            if (outputFile == null) {
-                if (info instanceof VideoInfo videoInfo) {
-                    path = path.resolve(videoInfo.getTitle() + "." + formatOption.getExtension());
-                } else if (info instanceof VideoPreviewInfo previewInfo) {
-                    path = path.resolve(previewInfo.getTitle() + "." + formatOption.getExtension());
-                }
-                log.warning("Could not extract filename from output, using default video title instead (File output reference could point to a wrong location)");
-            } else {
-                path = Path.of(outputFile);
+        } else if (outputFile == null) {
+            if (info instanceof VideoInfo videoInfo) {
+                path = path.resolve(videoInfo.getTitle() + "." + formatOption.getExtension());
+            } else if (info instanceof VideoPreviewInfo previewInfo) {
+                path = path.resolve(previewInfo.getTitle() + "." + formatOption.getExtension());
             }
+            log.warning("Could not extract filename from output, using default video title instead (File output reference could point to a wrong location)");
+        } else {
+            path = Path.of(outputFile);
         }
+        archive(info);
         return new VideoFileInfo<>(path.toFile(), info);
     }
 
@@ -295,12 +852,13 @@ public class DownloadBuilder {
      * @param output The output of the yt-dlp command
      * @return True if the file has already been downloaded
      */
-    private static String hasFileBeenDownloaded(String output) {
-
-        for (String line : output.split("\n")) {
-            Matcher matcher = hasBeenDownloadedPattern.matcher(line);
-            if (matcher.matches()) {
-                return matcher.group("filename");
+    private static String hasFileBeenDownloaded(CapturedOutput output) {
+        try (Stream<String> lines = output.lines()) {
+            for (Iterator<String> iterator = lines.iterator(); iterator.hasNext(); ) {
+                Matcher matcher = hasBeenDownloadedPattern.matcher(iterator.next());
+                if (matcher.matches()) {
+                    return matcher.group("filename");
+                }
             }
         }
         return null;
@@ -312,48 +870,92 @@ public class DownloadBuilder {
      * @param output The output of the yt-dlp command
      * @return The filename
      */
-    private static String extractFileName(String output) {
-        for (String line : output.split("\n")) {
-            Matcher matcher = outputFileNamePattern.matcher(line);
-            if (matcher.matches()) {
-                return matcher.group("filename");
-            }
-            Matcher audioMatcher = outputFileNameAudioPattern.matcher(line);
-            if (audioMatcher.matches()) {
-                return audioMatcher.group("filename");
+    private static String extractFileName(CapturedOutput output) {
+        try (Stream<String> lines = output.lines()) {
+            for (Iterator<String> iterator = lines.iterator(); iterator.hasNext(); ) {
+                String line = iterator.next();
+                Matcher matcher = outputFileNamePattern.matcher(line);
+                if (matcher.matches()) {
+                    return matcher.group("filename");
+                }
+                Matcher audioMatcher = outputFileNameAudioPattern.matcher(line);
+                if (audioMatcher.matches()) {
+                    return audioMatcher.group("filename");
+                }
             }
         }
         return null;
     }
 
-    private static <T> List<VideoFileInfo<T>> executeTasks(List<Callable<VideoFileInfo<T>>> tasks) throws YtDlpException {
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<Future<VideoFileInfo<T>>> futures = new ArrayList<>();
+    /**
+     * @return the executor parallel downloads run on
+     */
+    private ExecutorService taskExecutor() {
+        if (executor != null) return executor;
+        return virtualThreads ? SharedExecutors.virtualExecutor() : YtDlp.getTaskExecutor();
+    }
 
+    /**
+     * Executes the tasks in parallel passing every result to the consumer (on the calling thread) in completion order
+     */
+    private static <T> void executeTasks(List<Callable<VideoFileInfo<T>>> tasks, ExecutorService executorService, Consumer<VideoFileInfo<T>> consumer) throws YtDlpException {
+        CompletionService<VideoFileInfo<T>> completionService = new ExecutorCompletionService<>(executorService);
+
+        List<Future<VideoFileInfo<T>>> futures = new ArrayList<>();
         for (Callable<VideoFileInfo<T>> task : tasks) {
-            futures.add(executorService.submit(task));
+            futures.add(completionService.submit(task));
         }
 
-        List<VideoFileInfo<T>> results = new ArrayList<>();
-        for (Future<VideoFileInfo<T>> future : futures) {
-            try {
-                results.add(future.get());
-            } catch (InterruptedException | ExecutionException e) {
-                throw new YtDlpException(e);
+        boolean completed = false;
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                consumer.accept(completionService.take().get());
             }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } finally {
+            // stop the remaining downloads instead of leaving their processes running, also if the consumer failed
+            if (!completed) futures.forEach(other -> other.cancel(true));
+        }
+    }
+
+    /**
+     * @return the exception a task failed with, unwrapped if it already is a {@link YtDlpException}
+     */
+    private static YtDlpException failure(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof YtDlpException ytDlpException) return ytDlpException;
+        if (cause instanceof Error error) throw error;
+        return new YtDlpException(cause instanceof Exception exception ? exception : e);
+    }
+
+
+    private static <T> List<VideoFileInfo<T>> executeTasks(List<Callable<VideoFileInfo<T>>> tasks, ExecutorService executorService) throws YtDlpException {
+        List<Future<VideoFileInfo<T>>> futures = new ArrayList<>();
+
+        for (Callable<VideoFileInfo<T>> task : tasks) {
+            futures.add(executorService.submit(task));
         }
 
-        executorService.shutdown();
+        List<VideoFileInfo<T>> results = new ArrayList<>();
+        boolean completed = false;
         try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                    System.err.println("Executor service did not terminate");
-                }
+            for (Future<VideoFileInfo<T>> future : futures) {
+                results.add(future.get());
             }
-        } catch (InterruptedException ex) {
-            executorService.shutdownNow();
+            completed = true;
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } finally {
+            // stop the remaining downloads instead of leaving their processes running
+            if (!completed) futures.forEach(other -> other.cancel(true));
         }
 
         return results;
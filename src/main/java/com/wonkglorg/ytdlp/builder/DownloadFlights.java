@@ -0,0 +1,204 @@
+package com.wonkglorg.ytdlp.builder;
+
+import com.wonkglorg.ytdlp.YtDlpRequest;
+import com.wonkglorg.ytdlp.callback.DownloadEndCallback;
+import com.wonkglorg.ytdlp.callback.DownloadLineCallback;
+import com.wonkglorg.ytdlp.callback.DownloadProgressCallback;
+import com.wonkglorg.ytdlp.callback.DownloadStartCallback;
+import com.wonkglorg.ytdlp.callback.ProgressCallBackData;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.handle.DownloadHandle;
+import com.wonkglorg.ytdlp.mapper.VideoFileInfo;
+import com.wonkglorg.ytdlp.utils.SharedExecutors;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Downloads currently running in this jvm, a download of the same video with the same format into the same output
+ * location attaches to the running one instead of starting a second process racing on the same files.
+ * <br>
+ * The process runs on its own task, every caller (including the one that started it) only waits for its result.
+ * Attached callers receive the output of the running download from the moment they attach and the same result. A
+ * caller interrupted while waiting (for example by cancelling its {@link com.wonkglorg.ytdlp.handle.DownloadHandle})
+ * detaches, the process is only stopped once no caller is attached anymore.
+ */
+final class DownloadFlights {
+    private static final ConcurrentHashMap<Key, Flight> flights = new ConcurrentHashMap<>();
+
+    private DownloadFlights() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    /**
+     * Identifies a download
+     *
+     * @param url      the normalized url
+     * @param format   the format option
+     * @param output   the absolute output directory and file name template
+     * @param infoType the video information type of the result, downloads with different result types are not shared
+     */
+    record Key(String url, String format, String output, Class<?> infoType) {
+    }
+
+    /**
+     * Runs the download unless an identical one is already running, then waits for its result
+     *
+     * @param key      the download key
+     * @param request  the request of the download, its callbacks are replaced by ones notifying every attached caller
+     * @param download runs the download with the request
+     * @return the download result
+     * @throws YtDlpException if the download failed or the caller was interrupted while waiting
+     */
+    @SuppressWarnings("unchecked")
+    static <T> VideoFileInfo<T> run(Key key, YtDlpRequest request, Supplier<VideoFileInfo<T>> download) throws YtDlpException {
+        Caller caller = new Caller(request);
+        while (true) {
+            Flight flight = new Flight(key, caller);
+            Flight running = flights.putIfAbsent(key, flight);
+            if (running == null) {
+                flight.start(request, download);
+                return (VideoFileInfo<T>) flight.await(caller);
+            }
+            // the key includes the info type, so the result has the requested type
+            if (running.attach(caller)) return (VideoFileInfo<T>) running.await(caller);
+            // every caller of the running download detached and it is being stopped
+            flights.remove(key, running);
+        }
+    }
+
+    /**
+     * @return number of downloads currently running
+     */
+    static int size() {
+        return flights.size();
+    }
+
+    /**
+     * The callbacks of one waiting caller
+     */
+    private static final class Caller {
+        private final DownloadStartCallback startCallback;
+        private final DownloadProgressCallback progressCallback;
+        private final DownloadEndCallback endCallback;
+        private final DownloadLineCallback lineCallback;
+
+        private Caller(YtDlpRequest request) {
+            this.startCallback = request.getDownloadStartCallback();
+            this.progressCallback = request.getDownloadProgressCallback();
+            this.endCallback = request.getDownloadEndCallback();
+            this.lineCallback = request.getDownloadLineCallback();
+        }
+    }
+
+    private static final class Flight {
+        private final Key key;
+        private final CompletableFuture<VideoFileInfo<?>> result = new CompletableFuture<>();
+        private final List<Caller> callers = new CopyOnWriteArrayList<>();
+        /**
+         * The task running the process, guarded by this
+         */
+        private DownloadHandle<VideoFileInfo<?>> handle;
+        /**
+         * True once every caller detached, guarded by this
+         */
+        private boolean abandoned = false;
+
+        private Flight(Key key, Caller leader) {
+            this.key = key;
+            callers.add(leader);
+        }
+
+        /**
+         * Starts the process, the handle running it owns the process and deletes its partial files if it is stopped
+         */
+        private void start(YtDlpRequest request, Supplier<? extends VideoFileInfo<?>> download) {
+            request.setDownloadStartCallback(this::onStart);
+            request.setDownloadProgressCallback(this::onProgress);
+            request.setDownloadEndCallback(this::onEnd);
+            request.setDownloadLineCallback(this::onLine);
+            DownloadHandle<VideoFileInfo<?>> started = DownloadHandle.start(request, null, null, SharedExecutors.taskExecutor(), ignored -> download.get());
+            started.getFuture().whenComplete((value, throwable) -> {
+                flights.remove(key, this);
+                if (throwable == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+                }
+            });
+            synchronized (this) {
+                handle = started;
+                if (!abandoned) return;
+            }
+            started.cancel();
+        }
+
+        /**
+         * @return false if the flight was abandoned and can not be attached to anymore
+         */
+        private synchronized boolean attach(Caller caller) {
+            if (abandoned) return false;
+            callers.add(caller);
+            return true;
+        }
+
+        /**
+         * Stops the process if the caller was the last one attached
+         */
+        private void detach(Caller caller) {
+            DownloadHandle<VideoFileInfo<?>> stopped;
+            synchronized (this) {
+                callers.remove(caller);
+                if (!callers.isEmpty() || result.isDone()) return;
+                abandoned = true;
+                stopped = handle;
+            }
+            flights.remove(key, this);
+            // not started yet, start() stops it
+            if (stopped != null) stopped.cancel();
+        }
+
+        private void onStart(String videoName, String videoUrl) {
+            for (Caller caller : callers) {
+                if (caller.startCallback != null) caller.startCallback.onDownloadStart(videoName, videoUrl);
+            }
+        }
+
+        private void onProgress(ProgressCallBackData data) {
+            for (Caller caller : callers) {
+                if (caller.progressCallback != null) caller.progressCallback.onProgressUpdate(data);
+            }
+        }
+
+        private void onEnd(String videoName, String videoUrl, long timeTakenMs) {
+            for (Caller caller : callers) {
+                if (caller.endCallback != null) caller.endCallback.onDownloadEnd(videoName, videoUrl, timeTakenMs);
+            }
+        }
+
+        private void onLine(String line) {
+            for (Caller caller : callers) {
+                if (caller.lineCallback != null) caller.lineCallback.onLineOutput(line);
+            }
+        }
+
+        private VideoFileInfo<?> await(Caller caller) throws YtDlpException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                detach(caller);
+                Thread.currentThread().interrupt();
+                throw new YtDlpException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error error) throw error;
+                throw new YtDlpException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.wonkglorg.ytdlp.builder;
+
+/**
+ * What happens to the other entries of a batch download when one entry fails
+ */
+public enum FailurePolicy {
+    /**
+     * Keep downloading all other entries
+     */
+    CONTINUE,
+    /**
+     * Cancel entries that did not finish yet, running yt-dlp processes are stopped
+     */
+    CANCEL_REMAINING
+}
@@ -0,0 +1,53 @@
+package com.wonkglorg.ytdlp.cache;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives {@link MetadataCache} keys from urls without asking yt-dlp.
+ * <br>
+ * Urls of known sites are reduced to the yt-dlp extractor key and id of the video or playlist, so the different url forms
+ * of the same video (youtu.be, shorts, extra query parameters, ...) share one entry. Other urls are keyed on the url
+ * itself with the scheme and host lower cased and the fragment removed.
+ */
+public final class CacheKeys {
+    private static final Pattern youtubeVideo = Pattern.compile("^(?:https?://)?(?:[\\w-]+\\.)?(?:youtube\\.com/(?:watch\\?(?:[^#]*&)?v=|shorts/|embed/|live/|v/)|youtu\\.be/)(?<id>[\\w-]{11})(?![\\w-])");
+    private static final Pattern youtubePlaylist = Pattern.compile("^(?:https?://)?(?:[\\w-]+\\.)?youtube\\.com/[^#]*[?&]list=(?<id>[\\w-]+)");
+
+    private CacheKeys() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    /**
+     * @param url the video url
+     * @return the key of the video information of this url
+     */
+    public static String video(String url) {
+        Matcher matcher = youtubeVideo.matcher(url.trim());
+        return "video:" + (matcher.find() ? "Youtube:" + matcher.group("id") : normalize(url));
+    }
+
+    /**
+     * @param url the playlist url
+     * @return the key of the playlist preview information of this url
+     */
+    public static String playlistPreview(String url) {
+        Matcher matcher = youtubePlaylist.matcher(url.trim());
+        return "playlist-preview:" + (matcher.find() ? "YoutubeTab:" + matcher.group("id") : normalize(url));
+    }
+
+    private static String normalize(String url) {
+        String normalized = url.trim();
+        int fragment = normalized.indexOf('#');
+        if (fragment >= 0) normalized = normalized.substring(0, fragment);
+
+        int authority = normalized.indexOf("://");
+        if (authority < 0) return normalized;
+        int path = authority + 3;
+        while (path < normalized.length() && normalized.charAt(path) != '/' && normalized.charAt(path) != '?') {
+            path++;
+        }
+        return normalized.substring(0, path).toLowerCase(Locale.ROOT) + normalized.substring(path);
+    }
+}
@@ -0,0 +1,368 @@
+package com.wonkglorg.ytdlp.cache;
+
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link MetadataCache} persisted in an append-only log so cached entries survive restarts, usually placed below an
+ * {@link InMemoryMetadataCache} with a {@link TieredMetadataCache}.
+ * <br>
+ * Every put appends a record holding the key, the expiry time and the gzip compressed json, an invalidation appends a
+ * record without data. Only the offsets are kept in memory, built by scanning the log on open, so entries are served
+ * right after a restart without running yt-dlp. Each record ends with a checksum, a record torn by a crash is detected
+ * on open and the log is truncated to the last complete record. Once the log holds more replaced or expired data than
+ * live data it is compacted into a new file which then atomically replaces the log.
+ */
+public class DiskMetadataCache implements MetadataCache, Closeable {
+    private static final Logger log = Logger.getLogger(DiskMetadataCache.class.getName());
+
+    /**
+     * Default time in milliseconds an entry stays valid
+     */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+    /**
+     * Log size in bytes below which the log is never compacted
+     */
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final int RECORD_MAGIC = 0x59444d43;
+    private static final int NO_DATA = -1;
+    /**
+     * Far above any compressed yt-dlp output, larger lengths can only come from a damaged record
+     */
+    private static final int MAX_RECORD_SIZE = 256 * 1024 * 1024;
+    private static final String LOG_FILE = "metadata.log";
+
+    private final Path logFile;
+    private final long ttlMillis;
+    private final boolean syncWrites;
+    private final Map<String, Record> index = new HashMap<>();
+    private FileChannel channel;
+    private long liveBytes;
+
+    /**
+     * Opens or creates a cache with {@link #DEFAULT_TTL_MILLIS} that does not force writes to the disk
+     *
+     * @param directory the directory holding the cache files
+     * @throws YtDlpException if the log could not be opened
+     */
+    public DiskMetadataCache(Path directory) throws YtDlpException {
+        this(directory, DEFAULT_TTL_MILLIS, false);
+    }
+
+    /**
+     * Opens or creates a cache
+     *
+     * @param directory  the directory holding the cache files
+     * @param ttlMillis  time in milliseconds an entry stays valid, measured in wall clock time so it spans restarts
+     * @param syncWrites true to force every write to the disk before returning, protects against losing recent
+     *                   entries on power loss, not only on process crashes
+     * @throws YtDlpException if the log could not be opened
+     */
+    public DiskMetadataCache(Path directory, long ttlMillis, boolean syncWrites) throws YtDlpException {
+        if (ttlMillis <= 0) throw new IllegalArgumentException("ttlMillis must be greater than 0");
+        this.logFile = directory.resolve(LOG_FILE);
+        this.ttlMillis = ttlMillis;
+        this.syncWrites = syncWrites;
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<String> get(String key) {
+        Record record = index.get(key);
+        if (record == null) return Optional.empty();
+        if (record.isExpired()) {
+            remove(key);
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(decompress(readData(record)));
+        } catch (IOException e) {
+            log.warning("Unable to read cached entry " + key + ": " + e.getMessage());
+            remove(key);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, String json) {
+        put(key, json, ttlMillis);
+    }
+
+    @Override
+    public synchronized OptionalLong remainingTtl(String key) {
+        Record record = index.get(key);
+        if (record == null || record.isExpired()) return OptionalLong.empty();
+        return OptionalLong.of(record.expiresAt() - System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized void put(String key, String json, long ttlMillis) {
+        try {
+            long expiresAt = System.currentTimeMillis() + Math.min(ttlMillis, this.ttlMillis);
+            Record record = append(key, expiresAt, compress(json));
+            Record previous = index.put(key, record);
+            if (previous != null) liveBytes -= previous.size();
+            liveBytes += record.size();
+            compactIfNeeded();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(String key) {
+        if (index.containsKey(key)) remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        try {
+            channel.truncate(0);
+            if (syncWrites) channel.force(true);
+            index.clear();
+            liveBytes = 0;
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Rewrites the log with only its live entries
+     *
+     * @throws YtDlpException if the log could not be rewritten, the previous log stays in place
+     */
+    public synchronized void compact() throws YtDlpException {
+        Path compacted = logFile.resolveSibling(LOG_FILE + ".compact");
+        Map<String, Record> compactedIndex = new HashMap<>();
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Record> entry : index.entrySet()) {
+                Record record = entry.getValue();
+                if (record.isExpired()) continue;
+                ByteBuffer buffer = ByteBuffer.allocate(record.size());
+                readFully(channel, buffer, record.offset());
+                buffer.flip();
+                compactedIndex.put(entry.getKey(), new Record(target.position(), record.size(), record.dataOffset(), record.dataLength(), record.expiresAt()));
+                while (buffer.hasRemaining()) target.write(buffer);
+            }
+            // the new log has to be complete on disk before it replaces the old one
+            target.force(true);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+
+        try {
+            channel.close();
+            try {
+                Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // reopens the previous log if the move failed
+                channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+
+        index.clear();
+        index.putAll(compactedIndex);
+        liveBytes = compactedIndex.values().stream().mapToLong(Record::size).sum();
+    }
+
+    /**
+     * @return number of entries, including expired ones not yet removed
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the size of the log in bytes
+     */
+    public synchronized long getLogSize() throws YtDlpException {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void remove(String key) {
+        try {
+            append(key, 0, null);
+            Record previous = index.remove(key);
+            if (previous != null) liveBytes -= previous.size();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        try {
+            long size = channel.size();
+            if (size > MIN_COMPACTION_SIZE && size > 2 * liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Appends a record: magic, key length, key, expiry, data length (or {@link #NO_DATA}), data, crc of all previous fields
+     */
+    private Record append(String key, long expiresAt, byte[] data) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int dataLength = data == null ? 0 : data.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + keyBytes.length + 8 + 4 + dataLength + 4);
+        buffer.putInt(RECORD_MAGIC).putInt(keyBytes.length).put(keyBytes).putLong(expiresAt).putInt(data == null ? NO_DATA : data.length);
+        if (data != null) buffer.put(data);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        long offset = channel.size();
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        if (syncWrites) channel.force(false);
+        int dataOffset = 4 + 4 + keyBytes.length + 8 + 4;
+        return new Record(offset, buffer.limit(), dataOffset, dataLength, expiresAt);
+    }
+
+    /**
+     * Rebuilds the index from the log, truncating it after the last complete record
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (offset < size) {
+            Map.Entry<String, Record> entry = readRecord(offset, size, header);
+            if (entry == null) {
+                log.warning("Metadata cache log " + logFile + " is damaged after " + offset + " bytes, discarding the remaining " + (size - offset) + " bytes");
+                channel.truncate(offset);
+                channel.force(true);
+                break;
+            }
+            Record record = entry.getValue();
+            Record previous = record.dataLength() == NO_DATA ? index.remove(entry.getKey()) : index.put(entry.getKey(), record);
+            if (previous != null) liveBytes -= previous.size();
+            if (record.dataLength() != NO_DATA) liveBytes += record.size();
+            offset += record.size();
+        }
+    }
+
+    /**
+     * @return the key and record at the offset, null if the record is incomplete or damaged
+     */
+    private Map.Entry<String, Record> readRecord(long offset, long size, ByteBuffer header) throws IOException {
+        if (size - offset < 8) return null;
+        header.clear();
+        readFully(channel, header, offset);
+        header.flip();
+        if (header.getInt() != RECORD_MAGIC) return null;
+        int keyLength = header.getInt();
+        if (keyLength < 0 || keyLength > MAX_RECORD_SIZE || offset + 8 + keyLength + 12 > size) return null;
+
+        ByteBuffer rest = ByteBuffer.allocate(keyLength + 12);
+        readFully(channel, rest, offset + 8);
+        rest.flip();
+        byte[] keyBytes = new byte[keyLength];
+        rest.get(keyBytes);
+        long expiresAt = rest.getLong();
+        int dataLength = rest.getInt();
+        if (dataLength < NO_DATA) return null;
+
+        // computed as long, a damaged length must not overflow into a size that passes the checks
+        long length = 8L + keyLength + 12 + Math.max(dataLength, 0) + 4;
+        if (length > MAX_RECORD_SIZE || offset + length > size) return null;
+        int recordSize = (int) length;
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        readFully(channel, record, offset);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, recordSize - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(record.array(), recordSize - 4, 4).getInt()) return null;
+
+        Record entry = new Record(offset, recordSize, 8 + keyLength + 12, dataLength, expiresAt);
+        return Map.entry(new String(keyBytes, StandardCharsets.UTF_8), entry);
+    }
+
+    private byte[] readData(Record record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(record.dataLength());
+        readFully(channel, buffer, record.offset() + record.dataOffset());
+        return buffer.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of metadata cache log");
+            position += read;
+        }
+    }
+
+    private static byte[] compress(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String decompress(byte[] data) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Location of an entry in the log
+     *
+     * @param offset     start of the record
+     * @param size       size of the whole record
+     * @param dataOffset start of the compressed json relative to the record start
+     * @param dataLength length of the compressed json, {@link #NO_DATA} for an invalidation
+     * @param expiresAt  wall clock time in milliseconds the entry expires at
+     */
+    private record Record(long offset, int size, int dataOffset, int dataLength, long expiresAt) {
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.wonkglorg.ytdlp.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In memory {@link MetadataCache} evicting the least recently used entry once {@link #getMaxEntries()} is reached,
+ * entries expire {@link #getTtlMillis()} after they were stored
+ */
+public class InMemoryMetadataCache implements MetadataCache {
+    /**
+     * Default maximum number of entries
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    /**
+     * Default time in milliseconds an entry stays valid
+     */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    /**
+     * Creates a cache with {@link #DEFAULT_MAX_ENTRIES} and {@link #DEFAULT_TTL_MILLIS}
+     */
+    public InMemoryMetadataCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries
+     * @param ttlMillis  time in milliseconds an entry stays valid
+     */
+    public InMemoryMetadataCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be greater than 0");
+        if (ttlMillis <= 0) throw new IllegalArgumentException("ttlMillis must be greater than 0");
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        // access order, the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > InMemoryMetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<String> get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) return Optional.empty();
+        if (entry.isExpired()) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.json());
+    }
+
+    @Override
+    public synchronized void put(String key, String json) {
+        entries.put(key, new CacheEntry(json, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+    }
+
+    @Override
+    public synchronized void put(String key, String json, long ttlMillis) {
+        entries.put(key, new CacheEntry(json, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.min(ttlMillis, this.ttlMillis))));
+    }
+
+    @Override
+    public synchronized OptionalLong remainingTtl(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null || entry.isExpired()) return OptionalLong.empty();
+        return OptionalLong.of(TimeUnit.NANOSECONDS.toMillis(entry.expiresAt() - System.nanoTime()));
+    }
+
+    @Override
+    public synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of entries, including expired ones not yet removed
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private record CacheEntry(String json, long expiresAt) {
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
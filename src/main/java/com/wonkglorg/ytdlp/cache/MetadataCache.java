@@ -0,0 +1,60 @@
+package com.wonkglorg.ytdlp.cache;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Cache for the json output of metadata requests such as {@link com.wonkglorg.ytdlp.YtDlp#getVideoInfo(String)}, see
+ * {@link com.wonkglorg.ytdlp.YtDlp#setMetadataCache(MetadataCache)}.
+ * <br>
+ * The raw json is cached instead of the mapped objects so every lookup returns its own instance, the mapped types are
+ * mutable. Implementations must be thread safe.
+ */
+public interface MetadataCache {
+
+    /**
+     * @param key the cache key (see {@link CacheKeys})
+     * @return the cached json, empty if absent or expired
+     */
+    Optional<String> get(String key);
+
+    /**
+     * Caches the json output of a request
+     *
+     * @param key  the cache key (see {@link CacheKeys})
+     * @param json the json output
+     */
+    void put(String key, String json);
+
+    /**
+     * Caches the json output of a request for at most the given time, used to copy an entry between caches without
+     * extending its lifetime. Caches without expiry tracking ignore the time to live.
+     *
+     * @param key       the cache key (see {@link CacheKeys})
+     * @param json      the json output
+     * @param ttlMillis maximum time in milliseconds the entry stays valid, never longer than the cache's own time to live
+     */
+    default void put(String key, String json, long ttlMillis) {
+        put(key, json);
+    }
+
+    /**
+     * @param key the cache key
+     * @return the time in milliseconds until the entry expires, empty if absent, expired or not tracked by this cache
+     */
+    default OptionalLong remainingTtl(String key) {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Removes an entry
+     *
+     * @param key the cache key
+     */
+    void invalidate(String key);
+
+    /**
+     * Removes all entries
+     */
+    void clear();
+}
@@ -0,0 +1,77 @@
+package com.wonkglorg.ytdlp.cache;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Chains caches from fastest to slowest, for example an {@link InMemoryMetadataCache} in front of a
+ * {@link DiskMetadataCache}. Lookups go through the tiers in order and copy a hit into the faster tiers with the time
+ * it has left to live, so a promoted entry never outlives its original expiry. Puts and invalidations apply to every tier.
+ */
+public class TieredMetadataCache implements MetadataCache {
+    private final List<MetadataCache> tiers;
+
+    /**
+     * @param tiers the caches from fastest to slowest
+     */
+    public TieredMetadataCache(MetadataCache... tiers) {
+        if (tiers.length == 0) throw new IllegalArgumentException("At least one tier is required");
+        this.tiers = List.of(tiers);
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        for (int i = 0; i < tiers.size(); i++) {
+            Optional<String> json = tiers.get(i).get(key);
+            if (json.isPresent()) {
+                OptionalLong remainingTtl = i == 0 ? OptionalLong.empty() : tiers.get(i).remainingTtl(key);
+                for (int faster = 0; faster < i; faster++) {
+                    if (remainingTtl.isPresent()) {
+                        tiers.get(faster).put(key, json.get(), remainingTtl.getAsLong());
+                    } else {
+                        tiers.get(faster).put(key, json.get());
+                    }
+                }
+                return json;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(String key, String json) {
+        tiers.forEach(tier -> tier.put(key, json));
+    }
+
+    @Override
+    public void put(String key, String json, long ttlMillis) {
+        tiers.forEach(tier -> tier.put(key, json, ttlMillis));
+    }
+
+    @Override
+    public OptionalLong remainingTtl(String key) {
+        for (MetadataCache tier : tiers) {
+            OptionalLong remaining = tier.remainingTtl(key);
+            if (remaining.isPresent()) return remaining;
+        }
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public void invalidate(String key) {
+        tiers.forEach(tier -> tier.invalidate(key));
+    }
+
+    @Override
+    public void clear() {
+        tiers.forEach(MetadataCache::clear);
+    }
+
+    /**
+     * @return the caches from fastest to slowest
+     */
+    public List<MetadataCache> getTiers() {
+        return tiers;
+    }
+}
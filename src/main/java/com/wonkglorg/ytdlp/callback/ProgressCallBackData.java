@@ -2,8 +2,22 @@ package com.wonkglorg.ytdlp.callback;
 
 import java.util.Objects;
 
+/**
+ * Progress of a download, the numeric byte values are only known in structured progress mode
+ * ({@link com.wonkglorg.ytdlp.YtDlpRequest#setStructuredProgress(boolean)}) and -1 otherwise
+ */
 public record ProgressCallBackData(String url, String fileName, float progressPercent, String totalFileSize,
-                                   String downloadSpeed, long etaSeconds, int currFragment, int totalFragments) {
+                                   String downloadSpeed, long etaSeconds, int currFragment, int totalFragments,
+                                   long downloadedBytes, long totalBytes, double speedBytesPerSecond) {
+
+    /**
+     * Progress parsed from the human readable output, without numeric byte values
+     */
+    public ProgressCallBackData(String url, String fileName, float progressPercent, String totalFileSize,
+                                String downloadSpeed, long etaSeconds, int currFragment, int totalFragments) {
+        this(url, fileName, progressPercent, totalFileSize, downloadSpeed, etaSeconds, currFragment, totalFragments, -1, -1, -1);
+    }
+
     @Override
     public String toString() {
         return "ProgressCallBackData{" +
@@ -15,6 +29,9 @@ public record ProgressCallBackData(String url, String fileName, float progressPe
                 ", etaSeconds=" + etaSeconds +
                 ", currFragment=" + currFragment +
                 ", totalFragments=" + totalFragments +
+                ", downloadedBytes=" + downloadedBytes +
+                ", totalBytes=" + totalBytes +
+                ", speedBytesPerSecond=" + speedBytesPerSecond +
                 '}';
     }
 
@@ -22,11 +39,11 @@ public record ProgressCallBackData(String url, String fileName, float progressPe
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof ProgressCallBackData that)) return false;
-        return etaSeconds == that.etaSeconds && currFragment == that.currFragment && totalFragments == that.totalFragments && Float.compare(progressPercent, that.progressPercent) == 0 && Objects.equals(url, that.url) && Objects.equals(fileName, that.fileName) && Objects.equals(totalFileSize, that.totalFileSize) && Objects.equals(downloadSpeed, that.downloadSpeed);
+        return etaSeconds == that.etaSeconds && currFragment == that.currFragment && totalFragments == that.totalFragments && Float.compare(progressPercent, that.progressPercent) == 0 && downloadedBytes == that.downloadedBytes && totalBytes == that.totalBytes && Double.compare(speedBytesPerSecond, that.speedBytesPerSecond) == 0 && Objects.equals(url, that.url) && Objects.equals(fileName, that.fileName) && Objects.equals(totalFileSize, that.totalFileSize) && Objects.equals(downloadSpeed, that.downloadSpeed);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(url, fileName, progressPercent, totalFileSize, downloadSpeed, etaSeconds, currFragment, totalFragments);
+        return Objects.hash(url, fileName, progressPercent, totalFileSize, downloadSpeed, etaSeconds, currFragment, totalFragments, downloadedBytes, totalBytes, speedBytesPerSecond);
     }
 }
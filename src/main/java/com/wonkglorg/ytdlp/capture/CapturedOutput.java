@@ -0,0 +1,54 @@
+package com.wonkglorg.ytdlp.capture;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The output of a yt-dlp process as kept by its {@link OutputCapture} policy
+ */
+public interface CapturedOutput extends AutoCloseable {
+
+    /**
+     * Wraps output that is already held in memory
+     *
+     * @param text the output
+     * @return the captured output
+     */
+    static CapturedOutput of(String text) {
+        return new TextOutput(text, false);
+    }
+
+    /**
+     * Reads the whole output into a string, for large file backed output prefer {@link #lines()}
+     *
+     * @return the output
+     * @throws java.io.UncheckedIOException if file backed output could not be read
+     */
+    String asString();
+
+    /**
+     * Streams the output line by line without holding all of it in memory, lines end on {@code \n}, {@code \r} or
+     * {@code \r\n}. Close the stream when done with file backed output.
+     *
+     * @return the lines
+     * @throws java.io.UncheckedIOException if file backed output could not be opened
+     */
+    Stream<String> lines();
+
+    /**
+     * @return true if part of the output was dropped by the capture policy
+     */
+    boolean isTruncated();
+
+    /**
+     * @return the file holding the output if it was spilled to disk
+     */
+    Optional<Path> getFile();
+
+    /**
+     * Releases the output, deletes the temp file of file backed output
+     */
+    @Override
+    void close();
+}
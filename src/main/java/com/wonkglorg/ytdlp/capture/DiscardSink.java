@@ -0,0 +1,21 @@
+package com.wonkglorg.ytdlp.capture;
+
+/**
+ * Drops the output
+ */
+final class DiscardSink extends OutputSink {
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+    }
+
+    @Override
+    public ProcessBuilder.Redirect redirect() {
+        return ProcessBuilder.Redirect.DISCARD;
+    }
+
+    @Override
+    public CapturedOutput toOutput() {
+        return new TextOutput("", true);
+    }
+}
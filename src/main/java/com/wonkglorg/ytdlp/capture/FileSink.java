@@ -0,0 +1,44 @@
+package com.wonkglorg.ytdlp.capture;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the output to a temp file, opened on the first write so a redirected process can write to it instead
+ */
+final class FileSink extends OutputSink {
+    private final Path file;
+    private Writer writer;
+    private boolean closed;
+
+    FileSink(Path directory) throws IOException {
+        this.file = directory == null ? Files.createTempFile("yt-dlp-", ".out") : Files.createTempFile(directory, "yt-dlp-", ".out");
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (closed) throw new IOException("Output capture already ended");
+        if (writer == null) writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(chars, offset, length);
+    }
+
+    @Override
+    public ProcessBuilder.Redirect redirect() {
+        return ProcessBuilder.Redirect.to(file.toFile());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (writer != null) writer.flush();
+    }
+
+    @Override
+    public CapturedOutput toOutput() throws IOException {
+        closed = true;
+        if (writer != null) writer.close();
+        return new FileOutput(file);
+    }
+}
@@ -0,0 +1,22 @@
+package com.wonkglorg.ytdlp.capture;
+
+/**
+ * Keeps the whole output in a buffer
+ */
+final class FullSink extends OutputSink {
+    private final StringBuilder builder;
+
+    FullSink(StringBuilder builder) {
+        this.builder = builder;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        builder.append(chars, offset, length);
+    }
+
+    @Override
+    public CapturedOutput toOutput() {
+        return new TextOutput(builder.toString(), false);
+    }
+}
@@ -0,0 +1,61 @@
+package com.wonkglorg.ytdlp.capture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file through consecutive memory mapped windows, closing the stream closes the channel
+ */
+final class MappedInputStream extends InputStream {
+    /**
+     * Size of each mapped window, files larger than this are mapped piece by piece
+     */
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private long position;
+    private MappedByteBuffer window;
+
+    MappedInputStream(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextWindow()) return -1;
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (!nextWindow()) return -1;
+        int read = Math.min(length, window.remaining());
+        window.get(bytes, offset, read);
+        return read;
+    }
+
+    /**
+     * Maps the next window once the current one is exhausted
+     *
+     * @return false at the end of the file
+     */
+    private boolean nextWindow() throws IOException {
+        if (window != null && window.hasRemaining()) return true;
+        if (position >= size) return false;
+        long length = Math.min(WINDOW_SIZE, size - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.wonkglorg.ytdlp.capture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * How the stdout or stderr output of a yt-dlp process is kept, set per request with
+ * {@link com.wonkglorg.ytdlp.YtDlpRequest#setOutputCapture(OutputCapture)} and
+ * {@link com.wonkglorg.ytdlp.YtDlpRequest#setErrorCapture(OutputCapture)}.
+ * <br>
+ * Callbacks of the request still receive every line, the policy only decides what ends up in the
+ * {@link com.wonkglorg.ytdlp.YtDlpResponse}. Requests run on a {@link com.wonkglorg.ytdlp.worker.WorkerPool} always
+ * keep the full output.
+ */
+public final class OutputCapture {
+    /**
+     * The available policies
+     */
+    public enum Mode {
+        /**
+         * The whole output is kept in memory
+         */
+        FULL,
+        /**
+         * Nothing is kept, the process writes straight to the null device if nothing listens to its output
+         */
+        DISCARD,
+        /**
+         * Only the last chars are kept in a ring buffer
+         */
+        TAIL,
+        /**
+         * The output is written to a temp file and read back lazily through a memory mapped view
+         */
+        FILE
+    }
+
+    private static final OutputCapture FULL = new OutputCapture(Mode.FULL, 0, null);
+    private static final OutputCapture DISCARD = new OutputCapture(Mode.DISCARD, 0, null);
+
+    private final Mode mode;
+    private final int tailChars;
+    private final Path directory;
+
+    private OutputCapture(Mode mode, int tailChars, Path directory) {
+        this.mode = mode;
+        this.tailChars = tailChars;
+        this.directory = directory;
+    }
+
+    /**
+     * @return a policy keeping the whole output in memory (the default)
+     */
+    public static OutputCapture full() {
+        return FULL;
+    }
+
+    /**
+     * @return a policy dropping the output
+     */
+    public static OutputCapture discard() {
+        return DISCARD;
+    }
+
+    /**
+     * @param kilobytes the amount of output to keep in KB (1024 chars each)
+     * @return a policy keeping only the end of the output, enough for error messages or the final lines of a download
+     */
+    public static OutputCapture tail(int kilobytes) {
+        if (kilobytes <= 0) throw new IllegalArgumentException("kilobytes must be greater than 0");
+        return new OutputCapture(Mode.TAIL, Math.multiplyExact(kilobytes, 1024), null);
+    }
+
+    /**
+     * A policy writing the output to a temp file in the default temp directory. If the request has no callbacks
+     * listening to the stream (stderr never has any, for stdout set the progress callback to null) the process writes
+     * to the file directly without passing through the jvm.
+     * <br>
+     * The file is deleted once the {@link com.wonkglorg.ytdlp.YtDlpResponse} is closed.
+     *
+     * @return a policy spilling the output to disk
+     */
+    public static OutputCapture file() {
+        return new OutputCapture(Mode.FILE, 0, null);
+    }
+
+    /**
+     * Same as {@link #file()} with the temp file created in the given directory
+     *
+     * @param directory the directory to create the temp file in
+     * @return a policy spilling the output to disk
+     */
+    public static OutputCapture file(Path directory) {
+        return new OutputCapture(Mode.FILE, 0, Objects.requireNonNull(directory));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the amount of chars kept by a {@link Mode#TAIL} policy, 0 otherwise
+     */
+    public int getTailChars() {
+        return tailChars;
+    }
+
+    /**
+     * @return the directory temp files of a {@link Mode#FILE} policy are created in, null for the default temp directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Creates the sink receiving the output of a single process
+     *
+     * @return the sink
+     * @throws IOException if the temp file could not be created
+     */
+    public OutputSink openSink() throws IOException {
+        return switch (mode) {
+            case FULL -> new FullSink(new StringBuilder());
+            case DISCARD -> new DiscardSink();
+            case TAIL -> new TailSink(tailChars);
+            case FILE -> new FileSink(directory);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "OutputCapture{" +
+                "mode=" + mode +
+                ", tailChars=" + tailChars +
+                ", directory=" + directory +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OutputCapture that)) return false;
+        return tailChars == that.tailChars && mode == that.mode && Objects.equals(directory, that.directory);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, tailChars, directory);
+    }
+}
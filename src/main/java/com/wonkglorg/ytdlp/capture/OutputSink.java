@@ -0,0 +1,47 @@
+package com.wonkglorg.ytdlp.capture;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Receives the decoded output of a process as it is read, created by {@link OutputCapture#openSink()}.
+ * <br>
+ * {@link #toOutput()} ends the capture, a sink whose output is never used should still have it closed so temp files
+ * are deleted.
+ */
+public abstract class OutputSink extends Writer {
+
+    /**
+     * Wraps an existing buffer, every char written is appended to it
+     *
+     * @param builder the buffer
+     * @return the sink
+     */
+    public static OutputSink into(StringBuilder builder) {
+        return new FullSink(builder);
+    }
+
+    /**
+     * @return how the process may write this output directly without it being read by the jvm,
+     * {@link ProcessBuilder.Redirect#PIPE} if it has to be read (only used if nothing listens to the output)
+     */
+    public ProcessBuilder.Redirect redirect() {
+        return ProcessBuilder.Redirect.PIPE;
+    }
+
+    /**
+     * Ends the capture, can be called more than once
+     *
+     * @return the captured output
+     * @throws IOException if buffered output could not be written
+     */
+    public abstract CapturedOutput toOutput() throws IOException;
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -0,0 +1,45 @@
+package com.wonkglorg.ytdlp.capture;
+
+/**
+ * Keeps the last chars of the output in a ring buffer
+ */
+final class TailSink extends OutputSink {
+    private final char[] ring;
+    /**
+     * Index the next char goes to, once the ring is full this is also the oldest kept char
+     */
+    private int position;
+    /**
+     * Total number of chars written, greater than the ring length once output was dropped
+     */
+    private long written;
+
+    TailSink(int capacity) {
+        this.ring = new char[capacity];
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        written += length;
+        if (length >= ring.length) {
+            // only the end of this block survives, its oldest kept char goes to index 0
+            System.arraycopy(chars, offset + length - ring.length, ring, 0, ring.length);
+            position = 0;
+            return;
+        }
+        int first = Math.min(length, ring.length - position);
+        System.arraycopy(chars, offset, ring, position, first);
+        System.arraycopy(chars, offset + first, ring, 0, length - first);
+        position = (position + length) % ring.length;
+    }
+
+    @Override
+    public CapturedOutput toOutput() {
+        if (written <= ring.length) {
+            return new TextOutput(new String(ring, 0, (int) written), false);
+        }
+        StringBuilder builder = new StringBuilder(ring.length);
+        builder.append(ring, position, ring.length - position).append(ring, 0, position);
+        return new TextOutput(builder.toString(), true);
+    }
+}
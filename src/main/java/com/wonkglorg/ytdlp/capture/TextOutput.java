@@ -0,0 +1,62 @@
+package com.wonkglorg.ytdlp.capture;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Output held in memory
+ */
+final class TextOutput implements CapturedOutput {
+    private final String text;
+    private final boolean truncated;
+
+    TextOutput(String text, boolean truncated) {
+        this.text = Objects.requireNonNull(text);
+        this.truncated = truncated;
+    }
+
+    @Override
+    public String asString() {
+        return text;
+    }
+
+    @Override
+    public Stream<String> lines() {
+        return new BufferedReader(new StringReader(text)).lines();
+    }
+
+    @Override
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public Optional<Path> getFile() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TextOutput that)) return false;
+        return truncated == that.truncated && text.equals(that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(text, truncated);
+    }
+}
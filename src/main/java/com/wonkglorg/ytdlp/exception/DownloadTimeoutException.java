@@ -0,0 +1,17 @@
+package com.wonkglorg.ytdlp.exception;
+
+/**
+ * Thrown when a download was stopped because it ran longer than its timeout or made no progress for too long, see
+ * {@link com.wonkglorg.ytdlp.handle.DownloadHandle}
+ */
+public class DownloadTimeoutException extends YtDlpException {
+
+    /**
+     * Construct DownloadTimeoutException with a message
+     *
+     * @param message
+     */
+    public DownloadTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.wonkglorg.ytdlp.exception;
+
+/**
+ * Thrown when a worker of a {@link com.wonkglorg.ytdlp.worker.WorkerPool} could not run a job (it crashed, did not
+ * answer in time or answered outside the protocol), the job itself may be retried as a separate process
+ */
+public class WorkerException extends YtDlpException {
+
+    /**
+     * Construct WorkerException with a message
+     *
+     * @param message
+     */
+    public WorkerException(String message) {
+        super(message);
+    }
+
+    /**
+     * Construct WorkerException from another exception
+     *
+     * @param e Any exception
+     */
+    public WorkerException(Exception e) {
+        super(e);
+    }
+}
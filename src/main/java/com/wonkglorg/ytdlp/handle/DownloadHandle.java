@@ -0,0 +1,331 @@
+package com.wonkglorg.ytdlp.handle;
+
+import com.wonkglorg.ytdlp.YtDlpRequest;
+import com.wonkglorg.ytdlp.callback.DownloadLineCallback;
+import com.wonkglorg.ytdlp.callback.DownloadProgressCallback;
+import com.wonkglorg.ytdlp.callback.ProgressCallBackData;
+import com.wonkglorg.ytdlp.exception.DownloadTimeoutException;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.utils.SharedExecutors;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A running download that can be stopped, created by
+ * {@link com.wonkglorg.ytdlp.YtDlp#executeCancellable(YtDlpRequest, Duration, Duration)} or
+ * {@link com.wonkglorg.ytdlp.builder.DownloadBuilder#startDownload()}.
+ * <br>
+ * Cancelling it or exceeding a timeout kills the yt-dlp process together with its children (such as ffmpeg), once the
+ * process exited the partial files it was writing are deleted. A task that has not started a process of its own (such
+ * as one waiting for an identical download run by another caller) is interrupted instead. The latest progress can be
+ * read at any time without blocking.
+ *
+ * @param <T> the result of the download
+ */
+public final class DownloadHandle<T> {
+    private static final Logger log = Logger.getLogger(DownloadHandle.class.getName());
+    /**
+     * Files yt-dlp starts writing, downloaded formats and extracted audio
+     */
+    private static final Pattern destinationPattern = Pattern.compile("\\[(?:download|ExtractAudio)] Destination: (?<filename>.+)");
+    /**
+     * Target of merging formats, written to a temp file first
+     */
+    private static final Pattern mergerPattern = Pattern.compile("\\[Merger] Merging formats into \"(?<filename>.+)\"");
+    private static final long MIN_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long MAX_CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private enum Stop {
+        CANCELLED, TIMEOUT, STALLED
+    }
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final AtomicReference<ProgressCallBackData> progress = new AtomicReference<>();
+    private final AtomicReference<Stop> stopReason = new AtomicReference<>();
+    /**
+     * Files yt-dlp announced, the .part, .ytdl and fragment files next to them are partial
+     */
+    private final Set<Path> destinations = ConcurrentHashMap.newKeySet();
+    /**
+     * Files the process created itself, deleted as a whole
+     */
+    private final Set<Path> partialFiles = ConcurrentHashMap.newKeySet();
+    private final Path directory;
+    private final long timeoutNanos;
+    private final long stallTimeoutNanos;
+    private final long startedAt = System.nanoTime();
+    private volatile long lastActivity = startedAt;
+    /**
+     * True once the process started or reported output, stalls are only detected from then on
+     */
+    private volatile boolean active = false;
+    private volatile Process process;
+    /**
+     * The thread running the task while it runs, guarded by this
+     */
+    private Thread taskThread;
+    private volatile ScheduledFuture<?> watchdog;
+
+    private DownloadHandle(YtDlpRequest request, Duration timeout, Duration stallTimeout) {
+        this.directory = request.getDirectory() == null ? Path.of("") : Path.of(request.getDirectory());
+        this.timeoutNanos = timeout == null ? 0 : timeout.toNanos();
+        this.stallTimeoutNanos = stallTimeout == null ? 0 : stallTimeout.toNanos();
+    }
+
+    /**
+     * Runs a task executing the request on the executor and returns the handle controlling it. The callbacks of the
+     * request are wrapped to track progress, the task has to execute this request for the handle to reach its process.
+     *
+     * @param request      the request the task executes
+     * @param timeout      the maximum time the download may take since this call, null or zero for none
+     * @param stallTimeout the maximum time without progress or output once the process started or reported output, null or zero for none
+     * @param executor     the executor to run the task on
+     * @param task         the task executing the request
+     * @return the handle
+     */
+    public static <T> DownloadHandle<T> start(YtDlpRequest request, Duration timeout, Duration stallTimeout, Executor executor, Function<YtDlpRequest, T> task) {
+        DownloadHandle<T> handle = new DownloadHandle<>(request, timeout, stallTimeout);
+        handle.bind(request);
+        handle.result.whenComplete((ignored, throwable) -> {
+            if (throwable instanceof CancellationException) handle.stop(Stop.CANCELLED);
+        });
+        handle.startWatchdog();
+        CompletableFuture.supplyAsync(() -> handle.run(task, request), executor).whenComplete(handle::finish);
+        return handle;
+    }
+
+    /**
+     * Stops the download, the result completes with a {@link CancellationException}
+     *
+     * @return true if this call stopped the download, false if it was already stopped or finished
+     */
+    public boolean cancel() {
+        return !result.isDone() && stop(Stop.CANCELLED);
+    }
+
+    /**
+     * @return the latest progress reported, empty if none was reported yet
+     */
+    public Optional<ProgressCallBackData> getProgress() {
+        return Optional.ofNullable(progress.get());
+    }
+
+    /**
+     * @return the future completed with the result, cancelling it cancels the download
+     */
+    public CompletableFuture<T> getFuture() {
+        return result;
+    }
+
+    /**
+     * Waits for the download to finish
+     *
+     * @return the result
+     * @throws YtDlpException                if the download failed or timed out ({@link DownloadTimeoutException})
+     * @throws CancellationException if the download was cancelled
+     */
+    public T join() throws YtDlpException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new YtDlpException((Exception) cause);
+        }
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    public boolean isCancelled() {
+        return stopReason.get() == Stop.CANCELLED;
+    }
+
+    /**
+     * @return true if the download was stopped by its timeout or stall timeout
+     */
+    public boolean isTimedOut() {
+        Stop reason = stopReason.get();
+        return reason == Stop.TIMEOUT || reason == Stop.STALLED;
+    }
+
+    private void bind(YtDlpRequest request) {
+        DownloadProgressCallback progressCallback = request.getDownloadProgressCallback();
+        request.setDownloadProgressCallback(data -> {
+            progress.set(data);
+            lastActivity = System.nanoTime();
+            active = true;
+            if (progressCallback != null) progressCallback.onProgressUpdate(data);
+        });
+        DownloadLineCallback lineCallback = request.getDownloadLineCallback();
+        request.setDownloadLineCallback(line -> {
+            lastActivity = System.nanoTime();
+            active = true;
+            trackPartialFile(line);
+            if (lineCallback != null) lineCallback.onLineOutput(line);
+        });
+        request.setProcessListener(this::attach);
+    }
+
+    private void attach(Process started) {
+        lastActivity = System.nanoTime();
+        active = true;
+        process = started;
+        // stopped before the process existed
+        if (stopReason.get() != null) killProcessTree();
+    }
+
+    private T run(Function<YtDlpRequest, T> task, YtDlpRequest request) {
+        synchronized (this) {
+            // stopped before the executor ran it
+            if (stopReason.get() != null) throw new CancellationException();
+            taskThread = Thread.currentThread();
+        }
+        try {
+            return task.apply(request);
+        } finally {
+            synchronized (this) {
+                taskThread = null;
+                // an interrupt meant for the task must not reach the next task of the executor
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private boolean stop(Stop reason) {
+        if (!stopReason.compareAndSet(null, reason)) return false;
+        // before the process is killed, its failure would otherwise complete the result first
+        if (reason == Stop.CANCELLED) result.cancel(false);
+        if (process != null) {
+            killProcessTree();
+        } else {
+            interruptTask();
+        }
+        return true;
+    }
+
+    private synchronized void interruptTask() {
+        if (taskThread != null) taskThread.interrupt();
+    }
+
+    /**
+     * Kills the process and every process it started, the children are collected first as they are no longer
+     * descendants once their parent is gone
+     */
+    private void killProcessTree() {
+        Process current = process;
+        if (current == null) return;
+        List<ProcessHandle> descendants = current.descendants().collect(Collectors.toList());
+        current.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    private void startWatchdog() {
+        long shortest = Math.min(timeoutNanos > 0 ? timeoutNanos : Long.MAX_VALUE, stallTimeoutNanos > 0 ? stallTimeoutNanos : Long.MAX_VALUE);
+        if (shortest == Long.MAX_VALUE) return;
+        long interval = Math.max(MIN_CHECK_INTERVAL, Math.min(MAX_CHECK_INTERVAL, shortest / 4));
+        watchdog = SharedExecutors.scheduler().scheduleAtFixedRate(this::checkTimeouts, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    private void checkTimeouts() {
+        if (stopReason.get() != null || result.isDone()) return;
+        long now = System.nanoTime();
+        if (timeoutNanos > 0 && now - startedAt >= timeoutNanos) {
+            stop(Stop.TIMEOUT);
+        } else if (stallTimeoutNanos > 0 && active && now - lastActivity >= stallTimeoutNanos) {
+            stop(Stop.STALLED);
+        }
+    }
+
+    private void finish(T value, Throwable throwable) {
+        ScheduledFuture<?> current = watchdog;
+        if (current != null) current.cancel(false);
+
+        Stop reason = stopReason.get();
+        if (throwable == null) {
+            result.complete(value);
+            return;
+        }
+        // a task without a process of its own did not write the files it saw in the output
+        if (reason != null && process != null) deletePartialFiles();
+
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (reason == Stop.TIMEOUT) {
+            cause = new DownloadTimeoutException("Download did not finish within " + Duration.ofNanos(timeoutNanos));
+        } else if (reason == Stop.STALLED) {
+            cause = new DownloadTimeoutException("Download made no progress for " + Duration.ofNanos(stallTimeoutNanos));
+        }
+        result.completeExceptionally(cause);
+    }
+
+    private void trackPartialFile(String line) {
+        Matcher destinationMatcher = destinationPattern.matcher(line);
+        if (destinationMatcher.matches()) {
+            String filename = destinationMatcher.group("filename");
+            // streamed to stdout
+            if (filename.equals("-")) return;
+            Path destination = directory.resolve(filename);
+            destinations.add(destination);
+            // announced before it is written, an existing file belongs to an earlier download
+            if (!Files.exists(destination)) partialFiles.add(destination);
+            return;
+        }
+        Matcher mergerMatcher = mergerPattern.matcher(line);
+        if (mergerMatcher.matches()) {
+            Path target = directory.resolve(mergerMatcher.group("filename"));
+            String name = target.getFileName().toString();
+            int extension = name.lastIndexOf('.');
+            String tempName = extension < 0 ? name + ".temp" : name.substring(0, extension) + ".temp" + name.substring(extension);
+            partialFiles.add(target.resolveSibling(tempName));
+        }
+    }
+
+    /**
+     * Deletes the files the process created and the .part, .ytdl and fragment files yt-dlp writes next to its destinations
+     */
+    private void deletePartialFiles() {
+        partialFiles.forEach(DownloadHandle::deleteQuietly);
+        for (Path file : destinations) {
+            String name = file.getFileName().toString();
+            deleteQuietly(file.resolveSibling(name + ".part"));
+            deleteQuietly(file.resolveSibling(name + ".ytdl"));
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent == null || !Files.isDirectory(parent)) continue;
+            try (DirectoryStream<Path> fragments = Files.newDirectoryStream(parent, path -> path.getFileName().toString().startsWith(name + ".part-Frag"))) {
+                fragments.forEach(DownloadHandle::deleteQuietly);
+            } catch (IOException e) {
+                log.warning("Unable to list fragments of " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warning("Unable to delete partial file " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.wonkglorg.ytdlp.journal;
+
+import java.util.Objects;
+
+/**
+ * A url queued in a {@link JobJournal}
+ *
+ * @param id  the id assigned on enqueue, increasing in enqueue order
+ * @param url the url to download
+ */
+public record Job(long id, String url) {
+
+    @Override
+    public String toString() {
+        return "Job{" +
+                "id=" + id +
+                ", url='" + url + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Job job)) return false;
+        return id == job.id && Objects.equals(url, job.url);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, url);
+    }
+}
@@ -0,0 +1,569 @@
+package com.wonkglorg.ytdlp.journal;
+
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable queue of urls to download for large backfills, survives restarts and crashes of the jvm.
+ * <br>
+ * Every change (enqueue, start, finish, fail, retry) is appended to a log as a record ending with a checksum, after a
+ * number of records the unfinished jobs are written to a snapshot which atomically replaces the previous one and the
+ * log starts over. Opening the journal replays the snapshot and the log, a record torn by a crash is cut off. Jobs that
+ * were started but never finished are pending again and handed out in their original order, yt-dlp continues their
+ * partial files.
+ * <br>
+ * Urls stay on disk, {@link #next()} reads them sequentially, in memory only a few bits per job are kept so journals
+ * with millions of entries open quickly and stay small on the heap.
+ * <br>
+ * A journal directory can only be open once at a time, across processes as well, it is locked until {@link #close()}.
+ */
+public class JobJournal implements Closeable {
+    private static final Logger log = Logger.getLogger(JobJournal.class.getName());
+
+    /**
+     * Default number of records appended to the log before a snapshot is taken
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 500_000;
+    /**
+     * Failure messages are cut to this many chars
+     */
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final int FILE_MAGIC = 0x594a4e4c;
+    private static final int RECORD_MAGIC = 0x594a5243;
+    /**
+     * Magic, generation and the amount of finished jobs dropped by earlier snapshots
+     */
+    private static final int FILE_HEADER_SIZE = 4 + 8 + 8;
+    /**
+     * Magic, type, job id and text length, followed by the text and a crc of everything before it
+     */
+    private static final int RECORD_HEADER_SIZE = 4 + 1 + 8 + 4;
+    private static final int MAX_TEXT_LENGTH = 1 << 20;
+    private static final int NO_TEXT = -1;
+    private static final String SNAPSHOT_FILE = "journal.snapshot";
+    private static final String LOG_FILE = "journal.log";
+
+    private static final byte ENQUEUE = 1;
+    private static final byte START = 2;
+    private static final byte FINISH = 3;
+    private static final byte FAIL = 4;
+    private static final byte RETRY = 5;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final int snapshotInterval;
+    private final boolean syncWrites;
+
+    private FileChannel snapshotChannel;
+    private FileChannel logChannel;
+    private long generation;
+    private long logSize;
+    private long recordsSinceSnapshot;
+
+    private final BitSet finished = new BitSet();
+    private final BitSet failed = new BitSet();
+    /**
+     * Jobs handed out by this instance, started jobs of a previous run are not running anymore
+     */
+    private final Set<Long> running = new HashSet<>();
+    private long enqueued;
+    /**
+     * Finished jobs no longer contained in the files
+     */
+    private long finishedBefore;
+    private long nextId;
+
+    /**
+     * Position of {@link #next()}, reads the snapshot and then the log
+     */
+    private RecordReader cursor;
+    private boolean cursorOnLog;
+
+    /**
+     * Opens or creates a journal with {@link #DEFAULT_SNAPSHOT_INTERVAL} that only forces enqueued jobs to the disk
+     *
+     * @param directory the directory holding the journal files
+     * @throws YtDlpException if the journal could not be opened or is already open in this or another process
+     */
+    public JobJournal(Path directory) throws YtDlpException {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL, false);
+    }
+
+    /**
+     * Opens or creates a journal
+     *
+     * @param directory        the directory holding the journal files
+     * @param snapshotInterval number of records appended to the log before a snapshot is taken
+     * @param syncWrites       true to also force start, finish and fail records to the disk before returning, protects
+     *                         against repeating finished downloads after a power loss, not only after a crash of the jvm
+     * @throws YtDlpException if the journal could not be opened or is already open in this or another process
+     */
+    public JobJournal(Path directory, int snapshotInterval, boolean syncWrites) throws YtDlpException {
+        if (snapshotInterval <= 0) throw new IllegalArgumentException("snapshotInterval must be greater than 0");
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.logFile = directory.resolve(LOG_FILE);
+        this.snapshotInterval = snapshotInterval;
+        this.syncWrites = syncWrites;
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(logChannel);
+            closeQuietly(snapshotChannel);
+            throw e instanceof YtDlpException ytDlpException ? ytDlpException : new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Adds a url to the end of the queue, forced to the disk before returning
+     *
+     * @param url the url
+     * @return the job
+     */
+    public synchronized Job enqueue(String url) throws YtDlpException {
+        return enqueueAll(List.of(url)).get(0);
+    }
+
+    /**
+     * Adds urls to the end of the queue in the given order, forced to the disk once all were added
+     *
+     * @param urls the urls
+     * @return the jobs
+     */
+    public synchronized List<Job> enqueueAll(Iterable<String> urls) throws YtDlpException {
+        List<Job> jobs = new ArrayList<>();
+        try {
+            for (String url : urls) {
+                if (nextId > Integer.MAX_VALUE) throw new YtDlpException("Journal is full, at most " + Integer.MAX_VALUE + " jobs are supported");
+                Job job = new Job(nextId++, url);
+                append(ENQUEUE, job.id(), url);
+                enqueued++;
+                jobs.add(job);
+            }
+            logChannel.force(false);
+            snapshotIfNeeded();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+        return jobs;
+    }
+
+    /**
+     * Hands out the next pending job in enqueue order and records its start
+     *
+     * @return the job, empty if no job is pending
+     */
+    public synchronized Optional<Job> next() throws YtDlpException {
+        try {
+            while (true) {
+                Record record = cursor.next();
+                if (record == null) {
+                    if (cursorOnLog) return Optional.empty();
+                    cursor = new RecordReader(logChannel, FILE_HEADER_SIZE);
+                    cursorOnLog = true;
+                    continue;
+                }
+                if (record.type() != ENQUEUE || isSettled(record.id()) || running.contains(record.id())) continue;
+
+                running.add(record.id());
+                append(START, record.id(), null);
+                Job job = new Job(record.id(), record.text());
+                snapshotIfNeeded();
+                return Optional.of(job);
+            }
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Records that a job finished successfully
+     *
+     * @param job the job
+     */
+    public synchronized void finish(Job job) throws YtDlpException {
+        settle(job, FINISH, null);
+    }
+
+    /**
+     * Records that a job failed, it is not handed out again unless {@link #retryFailed()} is called
+     *
+     * @param job     the job
+     * @param message the reason, kept in the journal (may be null)
+     */
+    public synchronized void fail(Job job, String message) throws YtDlpException {
+        if (message != null && message.length() > MAX_MESSAGE_LENGTH) message = message.substring(0, MAX_MESSAGE_LENGTH);
+        settle(job, FAIL, message == null ? "" : message);
+    }
+
+    /**
+     * Makes every failed job pending again
+     *
+     * @return the number of jobs queued again
+     */
+    public synchronized int retryFailed() throws YtDlpException {
+        int retried = 0;
+        try {
+            for (int id = failed.nextSetBit(0); id >= 0; id = failed.nextSetBit(id + 1)) {
+                append(RETRY, id, null);
+                retried++;
+            }
+            failed.clear();
+            if (syncWrites) logChannel.force(false);
+            resetCursor();
+            snapshotIfNeeded();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+        return retried;
+    }
+
+    /**
+     * @return the current job counts
+     */
+    public synchronized JournalStats getStats() {
+        long finishedCount = finished.cardinality();
+        long failedCount = failed.cardinality();
+        long pending = enqueued - finishedCount - failedCount - running.size();
+        return new JournalStats(pending, running.size(), finishedBefore + finishedCount, failedCount);
+    }
+
+    /**
+     * Writes the unfinished and failed jobs to a new snapshot which replaces the previous one, then empties the log
+     *
+     * @throws YtDlpException if the snapshot could not be written, the previous files stay in place
+     */
+    public synchronized void snapshot() throws YtDlpException {
+        Path temp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        long nextGeneration = generation + 1;
+        long kept = 0;
+        try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(target, nextGeneration, finishedBefore + finished.cardinality());
+            long position = FILE_HEADER_SIZE;
+            // unfinished jobs in their order, then the failures so failed jobs stay failed
+            for (FileChannel source : List.of(snapshotChannel, logChannel)) {
+                RecordReader reader = new RecordReader(source, FILE_HEADER_SIZE);
+                for (Record record = reader.next(); record != null; record = reader.next()) {
+                    if (record.type() == ENQUEUE && !finished.get((int) record.id())) {
+                        position = write(target, position, ENQUEUE, record.id(), record.text());
+                        kept++;
+                    }
+                }
+            }
+            for (FileChannel source : List.of(snapshotChannel, logChannel)) {
+                RecordReader reader = new RecordReader(source, FILE_HEADER_SIZE);
+                for (Record record = reader.next(); record != null; record = reader.next()) {
+                    if (record.type() == FAIL && failed.get((int) record.id())) {
+                        position = write(target, position, FAIL, record.id(), record.text());
+                    }
+                }
+            }
+            // the snapshot has to be complete on disk before it replaces the previous one
+            target.force(true);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+
+        try {
+            snapshotChannel.close();
+            try {
+                Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // reopens the previous snapshot if the move failed
+                snapshotChannel = FileChannel.open(snapshotFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            // a crash before the log is reset leaves a log of the previous generation, it is ignored on open
+            resetLog(nextGeneration);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+
+        finishedBefore += finished.cardinality();
+        finished.clear();
+        enqueued = kept;
+        generation = nextGeneration;
+        recordsSinceSnapshot = 0;
+        resetCursor();
+    }
+
+    /**
+     * Forces all records to the disk
+     */
+    public synchronized void sync() throws YtDlpException {
+        try {
+            logChannel.force(false);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Takes a snapshot and closes the files, running jobs are pending again on the next open
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            snapshot();
+        } finally {
+            snapshotChannel.close();
+            logChannel.close();
+        }
+    }
+
+    private boolean isSettled(long id) {
+        return finished.get((int) id) || failed.get((int) id);
+    }
+
+    private void settle(Job job, byte type, String message) throws YtDlpException {
+        int id = (int) job.id();
+        if (id < 0 || id >= nextId) throw new IllegalArgumentException("Unknown job " + job);
+        if (isSettled(id)) return;
+        try {
+            append(type, id, message);
+            if (syncWrites) logChannel.force(false);
+            running.remove(job.id());
+            (type == FINISH ? finished : failed).set(id);
+            snapshotIfNeeded();
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    private void snapshotIfNeeded() {
+        if (recordsSinceSnapshot >= snapshotInterval) snapshot();
+    }
+
+    private void resetCursor() {
+        cursor = new RecordReader(snapshotChannel, FILE_HEADER_SIZE);
+        cursorOnLog = false;
+    }
+
+    private void append(byte type, long id, String text) throws IOException {
+        logSize = write(logChannel, logSize, type, id, text);
+        recordsSinceSnapshot++;
+    }
+
+    /**
+     * Writes a record at the position
+     *
+     * @return the position after the record
+     */
+    private static long write(FileChannel channel, long position, byte type, long id, String text) throws IOException {
+        byte[] textBytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+        int textLength = textBytes == null ? 0 : textBytes.length;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + textLength + 4);
+        buffer.putInt(RECORD_MAGIC).put(type).putLong(id).putInt(textBytes == null ? NO_TEXT : textLength);
+        if (textBytes != null) buffer.put(textBytes);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    private static void writeHeader(FileChannel channel, long generation, long finishedBefore) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(FILE_MAGIC).putLong(generation).putLong(finishedBefore);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * @return generation and finished count of the file, null if it has no valid header
+     */
+    private static long[] readHeader(FileChannel channel) throws IOException {
+        if (channel.size() < FILE_HEADER_SIZE) return null;
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) return null;
+        }
+        header.flip();
+        if (header.getInt() != FILE_MAGIC) return null;
+        return new long[]{header.getLong(), header.getLong()};
+    }
+
+    private void resetLog(long logGeneration) throws IOException {
+        logChannel.truncate(0);
+        writeHeader(logChannel, logGeneration, 0);
+        logChannel.force(true);
+        logSize = FILE_HEADER_SIZE;
+    }
+
+    /**
+     * Replays the snapshot and the log, cutting off a torn record at the end of the log
+     */
+    private void load() throws IOException {
+        logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // held until the log is closed, a second writer would interleave appends and replace the snapshot
+        FileLock lock;
+        try {
+            lock = logChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) throw new YtDlpException("Journal " + logFile.getParent() + " is already open");
+        snapshotChannel = FileChannel.open(snapshotFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long[] snapshotHeader = readHeader(snapshotChannel);
+        if (snapshotHeader == null) {
+            if (snapshotChannel.size() > 0) throw new IOException("Journal snapshot " + snapshotFile + " is damaged");
+            writeHeader(snapshotChannel, 0, 0);
+            snapshotChannel.force(true);
+            snapshotHeader = new long[]{0, 0};
+        }
+        generation = snapshotHeader[0];
+        finishedBefore = snapshotHeader[1];
+
+        long[] logHeader = readHeader(logChannel);
+        if (logHeader == null || logHeader[0] != generation) {
+            if (logHeader != null) log.info("Journal log " + logFile + " was already contained in the snapshot, starting a new log");
+            resetLog(generation);
+        } else {
+            logSize = logChannel.size();
+        }
+
+        replay(new RecordReader(snapshotChannel, FILE_HEADER_SIZE));
+        RecordReader logReader = new RecordReader(logChannel, FILE_HEADER_SIZE);
+        replay(logReader);
+        if (logReader.getOffset() < logSize) {
+            log.warning("Journal log " + logFile + " is damaged after " + logReader.getOffset() + " bytes, discarding the remaining " + (logSize - logReader.getOffset()) + " bytes");
+            logChannel.truncate(logReader.getOffset());
+            logChannel.force(true);
+            logSize = logReader.getOffset();
+        }
+        resetCursor();
+
+        JournalStats stats = getStats();
+        if (!stats.isDone()) log.info("Resuming journal with " + stats.pending() + " pending jobs");
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warning("Unable to close journal file: " + e.getMessage());
+        }
+    }
+
+    private void replay(RecordReader reader) throws IOException {
+        for (Record record = reader.next(); record != null; record = reader.next()) {
+            int id = (int) record.id();
+            switch (record.type()) {
+                case ENQUEUE -> {
+                    enqueued++;
+                    nextId = Math.max(nextId, record.id() + 1);
+                }
+                case FINISH -> {
+                    finished.set(id);
+                    failed.clear(id);
+                }
+                case FAIL -> failed.set(id);
+                case RETRY -> failed.clear(id);
+                default -> {
+                    // started jobs are pending again after a restart
+                }
+            }
+            recordsSinceSnapshot += reader.channel == logChannel ? 1 : 0;
+        }
+    }
+
+    private record Record(byte type, long id, String text) {
+    }
+
+    /**
+     * Reads records sequentially through a buffer, records appended after it reached the end are read by later calls
+     */
+    private static final class RecordReader {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        /**
+         * File position of the first unread byte in the buffer
+         */
+        private long offset;
+
+        private RecordReader(FileChannel channel, long offset) {
+            this.channel = channel;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the next record, null at the end or if the next record is incomplete or damaged
+         */
+        private Record next() throws IOException {
+            if (!available(RECORD_HEADER_SIZE)) return null;
+            int start = buffer.position();
+            if (buffer.getInt(start) != RECORD_MAGIC) return null;
+            byte type = buffer.get(start + 4);
+            long id = buffer.getLong(start + 5);
+            int textLength = buffer.getInt(start + 13);
+            if (textLength < NO_TEXT || textLength > MAX_TEXT_LENGTH) return null;
+
+            int size = RECORD_HEADER_SIZE + Math.max(textLength, 0) + 4;
+            if (!available(size)) return null;
+            start = buffer.position();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), start, size - 4);
+            if ((int) crc.getValue() != buffer.getInt(start + size - 4)) return null;
+
+            String text = textLength == NO_TEXT ? null : new String(buffer.array(), start + RECORD_HEADER_SIZE, textLength, StandardCharsets.UTF_8);
+            buffer.position(start + size);
+            offset += size;
+            return new Record(type, id, text);
+        }
+
+        private long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Reads from the file until the buffer holds at least the given amount of unread bytes
+         *
+         * @return false if the file ends before
+         */
+        private boolean available(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return true;
+            buffer.compact();
+            if (buffer.capacity() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            long readPosition = offset + buffer.position();
+            while (buffer.position() < bytes) {
+                int read = channel.read(buffer, readPosition);
+                if (read <= 0) break;
+                readPosition += read;
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wonkglorg.ytdlp.journal;
+
+import java.util.Objects;
+
+/**
+ * Snapshot of the job counts of a {@link JobJournal}
+ *
+ * @param pending  jobs waiting to be started, including jobs interrupted by a restart
+ * @param running  jobs handed out by {@link JobJournal#next()} and not finished yet
+ * @param finished jobs finished successfully since the journal was created
+ * @param failed   jobs that failed and were not retried
+ */
+public record JournalStats(long pending, long running, long finished, long failed) {
+
+    /**
+     * @return true if no job is pending or running
+     */
+    public boolean isDone() {
+        return pending == 0 && running == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalStats{" +
+                "pending=" + pending +
+                ", running=" + running +
+                ", finished=" + finished +
+                ", failed=" + failed +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JournalStats that)) return false;
+        return pending == that.pending && running == that.running && finished == that.finished && failed == that.failed;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pending, running, finished, failed);
+    }
+}
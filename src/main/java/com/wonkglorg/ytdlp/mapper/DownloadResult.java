@@ -0,0 +1,49 @@
+package com.wonkglorg.ytdlp.mapper;
+
+import java.util.Objects;
+
+/**
+ * Outcome of downloading a single entry of a batch, either the downloaded file or the error that prevented it
+ *
+ * @param videoInfo     the information of the entry
+ * @param videoFileInfo the downloaded file, null if the download failed
+ * @param error         the cause of the failure, null if the download succeeded
+ */
+public record DownloadResult<T>(T videoInfo, VideoFileInfo<T> videoFileInfo, Throwable error) {
+
+    public static <T> DownloadResult<T> success(VideoFileInfo<T> videoFileInfo) {
+        return new DownloadResult<>(videoFileInfo.videoInfo(), videoFileInfo, null);
+    }
+
+    public static <T> DownloadResult<T> failure(T videoInfo, Throwable error) {
+        return new DownloadResult<>(videoInfo, null, error);
+    }
+
+    /**
+     * @return true if the entry was downloaded
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadResult{" +
+                "videoInfo=" + videoInfo +
+                ", videoFileInfo=" + videoFileInfo +
+                ", error=" + error +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DownloadResult<?> that)) return false;
+        return Objects.equals(videoInfo, that.videoInfo) && Objects.equals(videoFileInfo, that.videoFileInfo) && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(videoInfo, videoFileInfo, error);
+    }
+}
@@ -0,0 +1,91 @@
+package com.wonkglorg.ytdlp.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.wonkglorg.ytdlp.mapper.json.PlaylistInfo;
+import com.wonkglorg.ytdlp.mapper.json.PlaylistPreviewInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared json mapping for all yt-dlp output.
+ * <br>
+ * Building the deserializers of the {@link com.wonkglorg.ytdlp.mapper.json} types is expensive, so a single
+ * {@link ObjectMapper} is kept and an immutable (thread safe) {@link ObjectReader} is prebuilt for every root type.
+ */
+public final class JsonReaders {
+    /**
+     * The types yt-dlp json output is mapped to directly
+     */
+    private static final List<Class<?>> ROOT_TYPES = List.of(VideoInfo.class, VideoPreviewInfo.class, PlaylistInfo.class, PlaylistPreviewInfo.class, JsonNode.class);
+
+    /**
+     * The mapper all readers are created from, never exposed so its configuration can not change after readers were built
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    static {
+        for (Class<?> type : ROOT_TYPES) {
+            READERS.put(type, OBJECT_MAPPER.readerFor(type));
+        }
+    }
+
+    private JsonReaders() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    /**
+     * Gets the shared reader for a type, readers for types outside the prebuilt root types are created once on first use
+     *
+     * @param type the type to read
+     * @return the reader
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.computeIfAbsent(type, OBJECT_MAPPER::readerFor);
+    }
+
+    /**
+     * Maps a json string to the given type
+     *
+     * @param json the json
+     * @param type the type to map to
+     * @return the mapped object
+     * @throws IOException if the json is invalid or does not match the type
+     */
+    public static <T> T read(String json, Class<T> type) throws IOException {
+        return readerFor(type).readValue(json);
+    }
+
+    /**
+     * Reads a json string as a tree
+     *
+     * @param json the json
+     * @return the root node
+     * @throws IOException if the json is invalid
+     */
+    public static JsonNode readTree(String json) throws IOException {
+        return readerFor(JsonNode.class).readTree(json);
+    }
+
+    /**
+     * Optional hook to call on application startup, maps an empty object with every root type so the first real
+     * request does not pay for class loading and deserializer construction
+     */
+    public static void warmUp() {
+        for (Class<?> type : ROOT_TYPES) {
+            try {
+                readerFor(type).readValue("{}");
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to warm up reader for " + type.getName(), e);
+            }
+        }
+    }
+}
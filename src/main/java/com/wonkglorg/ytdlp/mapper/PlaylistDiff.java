@@ -0,0 +1,53 @@
+package com.wonkglorg.ytdlp.mapper;
+
+import com.wonkglorg.ytdlp.mapper.json.PlaylistPreviewInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Changes of a playlist since it was last synced
+ *
+ * @param playlist   the current flat playlist listing
+ * @param added      entries not seen before, in playlist order
+ * @param removedIds ids of previously seen entries no longer in the playlist
+ */
+public record PlaylistDiff(PlaylistPreviewInfo playlist, List<VideoPreviewInfo> added, List<String> removedIds) {
+
+    /**
+     * @return true if entries were added or removed
+     */
+    public boolean hasChanges() {
+        return !added.isEmpty() || !removedIds.isEmpty();
+    }
+
+    /**
+     * @return the urls of the added entries, for example for {@link com.wonkglorg.ytdlp.YtDlp#getVideoInfos(java.util.Collection)}
+     */
+    public List<String> addedUrls() {
+        return added.stream().map(VideoPreviewInfo::getUrl).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistDiff{" +
+                "playlist=" + playlist +
+                ", added=" + added +
+                ", removedIds=" + removedIds +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PlaylistDiff that)) return false;
+        return Objects.equals(playlist, that.playlist) && Objects.equals(added, that.added) && Objects.equals(removedIds, that.removedIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playlist, added, removedIds);
+    }
+}
@@ -0,0 +1,45 @@
+package com.wonkglorg.ytdlp.mapper;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Result of a fail-soft playlist download, one {@link DownloadResult} per entry in playlist order
+ */
+public record PlaylistDownloadResult<T, U>(T playlistData, List<DownloadResult<U>> results) {
+
+    /**
+     * @return the files of all successfully downloaded entries
+     */
+    public List<VideoFileInfo<U>> successes() {
+        return results.stream().filter(DownloadResult::isSuccess).map(DownloadResult::videoFileInfo).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the results of all entries that failed or were cancelled
+     */
+    public List<DownloadResult<U>> failures() {
+        return results.stream().filter(result -> !result.isSuccess()).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistDownloadResult{" +
+                "playlistData=" + playlistData +
+                ", results=" + results +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PlaylistDownloadResult<?, ?> that)) return false;
+        return Objects.equals(playlistData, that.playlistData) && Objects.equals(results, that.results);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playlistData, results);
+    }
+}
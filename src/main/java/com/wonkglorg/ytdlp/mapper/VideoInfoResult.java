@@ -0,0 +1,43 @@
+package com.wonkglorg.ytdlp.mapper;
+
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+
+import java.util.Objects;
+
+/**
+ * Outcome of extracting the information of a single url as part of a batch
+ *
+ * @param url       the requested url
+ * @param videoInfo the extracted information, null if the extraction failed
+ * @param error     the error reported by yt-dlp for this url, null if the extraction succeeded
+ */
+public record VideoInfoResult(String url, VideoInfo videoInfo, String error) {
+
+    /**
+     * @return true if the information was extracted
+     */
+    public boolean isSuccess() {
+        return videoInfo != null;
+    }
+
+    @Override
+    public String toString() {
+        return "VideoInfoResult{" +
+                "url='" + url + '\'' +
+                ", videoInfo=" + videoInfo +
+                ", error='" + error + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VideoInfoResult that)) return false;
+        return Objects.equals(url, that.url) && Objects.equals(videoInfo, that.videoInfo) && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(url, videoInfo, error);
+    }
+}
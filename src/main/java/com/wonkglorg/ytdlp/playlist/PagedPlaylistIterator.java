@@ -0,0 +1,117 @@
+package com.wonkglorg.ytdlp.playlist;
+
+import com.wonkglorg.ytdlp.YtDlp;
+import com.wonkglorg.ytdlp.YtDlpRequest;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates over the entries of a playlist fetching them page by page with {@code --playlist-items}, so only the current
+ * and the prefetched page are held in memory and the first entries are available before the whole playlist was extracted.
+ * <br>
+ * While the entries of a page are consumed the next page is already fetched in the background (unless disabled). A page
+ * with fewer entries than the page size is the last one, so an entry that fails to extract ends the iteration with a
+ * {@link YtDlpException} instead of silently skipping it.
+ *
+ * @param <T> the entry type, {@link com.wonkglorg.ytdlp.mapper.json.VideoInfo} for full information or
+ *            {@link com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo} for flat entries
+ */
+public class PagedPlaylistIterator<T> implements Iterator<T>, AutoCloseable {
+    private final String url;
+    private final Class<T> type;
+    private final int pageSize;
+    private final List<String> options;
+    private final Executor executor;
+
+    private Iterator<T> page = Collections.emptyIterator();
+    private int nextStart = 1;
+    private boolean lastPage;
+    private CompletableFuture<List<T>> prefetched;
+
+    /**
+     * @param url      the playlist url
+     * @param type     the entry type
+     * @param pageSize number of entries fetched per yt-dlp process
+     * @param options  the yt-dlp options selecting the output, for example "--dump-json" or "--flat-playlist --dump-json"
+     * @param executor the executor the next page is prefetched on, null to fetch pages only when needed
+     */
+    public PagedPlaylistIterator(String url, Class<T> type, int pageSize, List<String> options, Executor executor) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be greater than 0");
+        this.url = url;
+        this.type = type;
+        this.pageSize = pageSize;
+        this.options = List.copyOf(options);
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() throws YtDlpException {
+        while (!page.hasNext()) {
+            if (lastPage) return false;
+            page = nextPage().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() throws YtDlpException {
+        if (!hasNext()) throw new NoSuchElementException();
+        return page.next();
+    }
+
+    /**
+     * Stops the iteration, a page being prefetched is no longer awaited (its process still runs to completion)
+     */
+    @Override
+    public void close() {
+        lastPage = true;
+        page = Collections.emptyIterator();
+        if (prefetched != null) {
+            prefetched.cancel(false);
+            prefetched = null;
+        }
+    }
+
+    private List<T> nextPage() throws YtDlpException {
+        int start = nextStart;
+        List<T> entries = prefetched != null ? await(prefetched) : fetch(start);
+        prefetched = null;
+        nextStart = start + pageSize;
+        lastPage = entries.size() < pageSize;
+
+        if (!lastPage && executor != null) {
+            int prefetchStart = nextStart;
+            prefetched = CompletableFuture.supplyAsync(() -> fetch(prefetchStart), executor);
+        }
+        return entries;
+    }
+
+    private List<T> fetch(int start) throws YtDlpException {
+        YtDlpRequest request = new YtDlpRequest(url);
+        for (String option : options) {
+            request.addOption(option);
+        }
+        request.addOption("--playlist-items", start + ":" + (start + pageSize - 1));
+
+        List<T> entries = new ArrayList<>(pageSize);
+        YtDlp.executeJsonLines(request, type, entries::add);
+        return entries;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws YtDlpException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof YtDlpException cause) throw cause;
+            throw new YtDlpException(e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.wonkglorg.ytdlp.scheduler;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the number of yt-dlp processes running at the same time, globally and per key (the host of the requested url
+ * or an explicitly set key such as the extractor).
+ * <br>
+ * Waiting requests are served in arrival order, a request whose key is at its limit does not hold up requests for other keys.
+ */
+public class ProcessScheduler {
+    /**
+     * Default maximum number of processes running at the same time
+     */
+    public static final int DEFAULT_MAX_PROCESSES = 16;
+    /**
+     * Default maximum number of processes running at the same time for one key
+     */
+    public static final int DEFAULT_MAX_PER_KEY = 8;
+    /**
+     * Second level labels registrars use below country code top level domains (co.uk, com.au, ne.jp, ...), a site is
+     * registered one level below them
+     */
+    private static final Set<String> COUNTRY_SECOND_LEVELS = Set.of("ac", "co", "com", "edu", "go", "gob", "gov", "mil", "ne", "net", "or", "org");
+
+    private final int maxProcesses;
+    private final int maxPerKey;
+    /**
+     * Limits overriding {@link #maxPerKey} for specific keys
+     */
+    private final Map<String, Integer> keyLimits = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final Map<String, Integer> runningPerKey = new HashMap<>();
+    private int running;
+    private long granted;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * Creates a scheduler with {@link #DEFAULT_MAX_PROCESSES} and {@link #DEFAULT_MAX_PER_KEY}
+     */
+    public ProcessScheduler() {
+        this(DEFAULT_MAX_PROCESSES, DEFAULT_MAX_PER_KEY);
+    }
+
+    /**
+     * @param maxProcesses maximum number of processes running at the same time
+     * @param maxPerKey    maximum number of processes running at the same time for one key
+     */
+    public ProcessScheduler(int maxProcesses, int maxPerKey) {
+        if (maxProcesses <= 0) throw new IllegalArgumentException("maxProcesses must be greater than 0");
+        if (maxPerKey <= 0) throw new IllegalArgumentException("maxPerKey must be greater than 0");
+        this.maxProcesses = maxProcesses;
+        this.maxPerKey = maxPerKey;
+    }
+
+    /**
+     * Overrides the per key limit for a specific key
+     *
+     * @param key   the key (see {@link #keyOf(String)})
+     * @param limit maximum number of processes running at the same time for this key
+     * @return this
+     */
+    public ProcessScheduler setKeyLimit(String key, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be greater than 0");
+        keyLimits.put(key, limit);
+        dispatch();
+        return this;
+    }
+
+    /**
+     * Waits until a process may be started
+     *
+     * @param key the key to limit on, null to only apply the global limit
+     * @return the permit, close it once the process exited
+     * @throws InterruptedException if interrupted while waiting, no permit is held in that case
+     */
+    public Permit acquire(String key) throws InterruptedException {
+        CompletableFuture<Permit> future = acquireAsync(key);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            if (!future.cancel(false)) {
+                // granted at the same time as the interrupt
+                future.join().close();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Queues a request for a permit without blocking
+     *
+     * @param key the key to limit on, null to only apply the global limit
+     * @return future completed with the permit once a process may be started, cancelling it leaves the queue
+     */
+    public CompletableFuture<Permit> acquireAsync(String key) {
+        Waiter waiter = new Waiter(key);
+        synchronized (lock) {
+            queue.add(waiter);
+        }
+        dispatch();
+        return waiter.future;
+    }
+
+    /**
+     * @return a snapshot of the current queue and wait time metrics
+     */
+    public SchedulerMetrics getMetrics() {
+        synchronized (lock) {
+            long averageWait = granted == 0 ? 0 : totalWaitNanos / granted;
+            return new SchedulerMetrics(queue.size(), running, granted, averageWait, maxWaitNanos);
+        }
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    public int getMaxPerKey() {
+        return maxPerKey;
+    }
+
+    /**
+     * Derives the scheduling key of an url, its host without subdomains (music.youtube.com and www.youtube.com both
+     * become youtube.com). Sites below a country code second level domain keep their own key (www.bbc.co.uk becomes
+     * bbc.co.uk), ip addresses are kept as they are.
+     *
+     * @param url the url
+     * @return the key or null if the url has no host
+     */
+    public static String keyOf(String url) {
+        if (url == null) return null;
+        String host;
+        try {
+            host = URI.create(url.trim()).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (host == null) return null;
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.startsWith("[") || host.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'))) return host;
+        int last = host.lastIndexOf('.');
+        if (last <= 0) return host;
+        int secondLast = host.lastIndexOf('.', last - 1);
+        if (secondLast < 0) return host;
+        if (host.length() - last - 1 == 2 && COUNTRY_SECOND_LEVELS.contains(host.substring(secondLast + 1, last))) {
+            int thirdLast = host.lastIndexOf('.', secondLast - 1);
+            return thirdLast < 0 ? host : host.substring(thirdLast + 1);
+        }
+        return host.substring(secondLast + 1);
+    }
+
+    private int limitOf(String key) {
+        return keyLimits.getOrDefault(key, maxPerKey);
+    }
+
+    private void release(String key) {
+        synchronized (lock) {
+            running--;
+            if (key != null) runningPerKey.merge(key, -1, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        dispatch();
+    }
+
+    /**
+     * Grants permits to waiting requests in arrival order as long as capacity is available
+     */
+    private void dispatch() {
+        List<Waiter> grantedWaiters = new ArrayList<>();
+        synchronized (lock) {
+            Iterator<Waiter> iterator = queue.iterator();
+            while (running < maxProcesses && iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (waiter.future.isDone()) {
+                    // cancelled while waiting
+                    iterator.remove();
+                    continue;
+                }
+                if (waiter.key != null && runningPerKey.getOrDefault(waiter.key, 0) >= limitOf(waiter.key)) {
+                    continue;
+                }
+                iterator.remove();
+                running++;
+                if (waiter.key != null) runningPerKey.merge(waiter.key, 1, Integer::sum);
+
+                long waitNanos = System.nanoTime() - waiter.enqueuedAt;
+                granted++;
+                totalWaitNanos += waitNanos;
+                maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                grantedWaiters.add(waiter);
+            }
+        }
+
+        // completed outside the lock, dependent actions may acquire or release permits themselves
+        for (Waiter waiter : grantedWaiters) {
+            Permit permit = new Permit(waiter.key);
+            if (!waiter.future.complete(permit)) {
+                permit.close();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final String key;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Permission to run a process, closing it lets the next waiting request start
+     */
+    public final class Permit implements AutoCloseable {
+        private final String key;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(key);
+            }
+        }
+    }
+}
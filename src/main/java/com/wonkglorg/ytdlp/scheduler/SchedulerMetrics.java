@@ -0,0 +1,37 @@
+package com.wonkglorg.ytdlp.scheduler;
+
+import java.util.Objects;
+
+/**
+ * Snapshot of the state of a {@link ProcessScheduler}
+ *
+ * @param queueDepth       number of requests waiting for a permit
+ * @param running          number of permits currently held
+ * @param granted          total number of permits granted
+ * @param averageWaitNanos average time a request waited for its permit
+ * @param maxWaitNanos     longest time a request waited for its permit
+ */
+public record SchedulerMetrics(int queueDepth, int running, long granted, long averageWaitNanos, long maxWaitNanos) {
+    @Override
+    public String toString() {
+        return "SchedulerMetrics{" +
+                "queueDepth=" + queueDepth +
+                ", running=" + running +
+                ", granted=" + granted +
+                ", averageWaitNanos=" + averageWaitNanos +
+                ", maxWaitNanos=" + maxWaitNanos +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SchedulerMetrics that)) return false;
+        return queueDepth == that.queueDepth && running == that.running && granted == that.granted && averageWaitNanos == that.averageWaitNanos && maxWaitNanos == that.maxWaitNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(queueDepth, running, granted, averageWaitNanos, maxWaitNanos);
+    }
+}
@@ -0,0 +1,146 @@
+package com.wonkglorg.ytdlp.sync;
+
+import com.wonkglorg.ytdlp.YtDlp;
+import com.wonkglorg.ytdlp.cache.CacheKeys;
+import com.wonkglorg.ytdlp.cache.MetadataCache;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.mapper.PlaylistDiff;
+import com.wonkglorg.ytdlp.mapper.json.PlaylistPreviewInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental sync of a playlist, only the cheap flat listing is fetched on every poll and compared to the entry ids
+ * seen before, so the cost of a poll scales with the number of changed entries instead of the playlist size.
+ * <br>
+ * Entries only count as seen once {@link #markSeen(Collection)} is called for them, usually after they were extracted
+ * or downloaded, so entries that failed are reported as added again on the next poll. With a state file the seen ids
+ * survive restarts, it is replaced atomically on every change.
+ */
+public class PlaylistSync {
+    private final String url;
+    private final Path stateFile;
+    private final Set<String> seenIds = new LinkedHashSet<>();
+
+    /**
+     * Creates a sync keeping its state in memory only
+     *
+     * @param url the playlist url
+     */
+    public PlaylistSync(String url) {
+        this.url = url;
+        this.stateFile = null;
+    }
+
+    /**
+     * Creates a sync persisting the seen entry ids, previously stored ids are loaded
+     *
+     * @param url       the playlist url
+     * @param stateFile the file holding the seen entry ids (one per line)
+     * @throws YtDlpException if the state file could not be read
+     */
+    public PlaylistSync(String url, Path stateFile) throws YtDlpException {
+        this.url = url;
+        this.stateFile = stateFile;
+        if (Files.exists(stateFile)) {
+            try {
+                for (String id : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+                    if (!id.isBlank()) seenIds.add(id.trim());
+                }
+            } catch (IOException e) {
+                throw new YtDlpException(e);
+            }
+        }
+    }
+
+    /**
+     * Fetches the flat playlist listing and compares it to the seen entries, does not change the seen entries
+     *
+     * @return the changes since the last sync, every entry is added on the first sync
+     * @throws YtDlpException if the playlist could not be retrieved
+     */
+    public PlaylistDiff fetchDiff() throws YtDlpException {
+        // a cached listing would hide new entries
+        MetadataCache cache = YtDlp.getMetadataCache();
+        if (cache != null) cache.invalidate(CacheKeys.playlistPreview(url));
+        PlaylistPreviewInfo playlist = YtDlp.getPlaylistPreviewInfo(url).orElseThrow(() -> new YtDlpException("Playlist not found"));
+        List<VideoPreviewInfo> entries = playlist.getEntries() == null ? List.of() : playlist.getEntries();
+
+        List<VideoPreviewInfo> added = new ArrayList<>();
+        Set<String> currentIds = new HashSet<>();
+        synchronized (this) {
+            for (VideoPreviewInfo entry : entries) {
+                currentIds.add(entry.getId());
+                if (!seenIds.contains(entry.getId())) added.add(entry);
+            }
+            List<String> removed = new ArrayList<>();
+            for (String id : seenIds) {
+                if (!currentIds.contains(id)) removed.add(id);
+            }
+            return new PlaylistDiff(playlist, added, removed);
+        }
+    }
+
+    /**
+     * Marks entries as seen, they are no longer reported as added
+     *
+     * @param ids the entry ids
+     * @throws YtDlpException if the state file could not be written
+     */
+    public synchronized void markSeen(Collection<String> ids) throws YtDlpException {
+        if (seenIds.addAll(ids)) save();
+    }
+
+    /**
+     * Forgets seen entries, usually the removed ones of a {@link PlaylistDiff}, they are reported as added if they
+     * reappear
+     *
+     * @param ids the entry ids
+     * @throws YtDlpException if the state file could not be written
+     */
+    public synchronized void forget(Collection<String> ids) throws YtDlpException {
+        if (seenIds.removeAll(ids)) save();
+    }
+
+    /**
+     * @return true if the entry was seen
+     */
+    public synchronized boolean isSeen(String id) {
+        return seenIds.contains(id);
+    }
+
+    /**
+     * @return number of seen entries
+     */
+    public synchronized int size() {
+        return seenIds.size();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    private void save() throws YtDlpException {
+        if (stateFile == null) return;
+        try {
+            Path parent = stateFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, stateFile.getFileName().toString(), ".tmp");
+            Files.write(temp, seenIds, StandardCharsets.UTF_8);
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+}
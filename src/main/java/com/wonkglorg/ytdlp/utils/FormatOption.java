@@ -1,18 +1,23 @@
 package com.wonkglorg.ytdlp.utils;
 
 public enum FormatOption {
-    MP3("mp3", "--extract-audio", "--audio-format mp3"),
-    FLAC("flac", "--extract-audio", "--audio-format flac"),
-    WAV("wav", "--extract-audio", "--audio-format wav"),
-    OPUS("opus", "--extract-audio", "--audio-format opus"),
-    MP4("mp4", ""),
-    WEBM("webm", "");;
+    MP3("mp3", null, "--extract-audio", "--audio-format mp3"),
+    FLAC("flac", null, "--extract-audio", "--audio-format flac"),
+    WAV("wav", null, "--extract-audio", "--audio-format wav"),
+    OPUS("opus", null, "--extract-audio", "--audio-format opus"),
+    MP4("mp4", "best[ext=mp4]", ""),
+    WEBM("webm", "best[ext=webm]", "");;
 
     private final String extension;
+    /**
+     * Format selecting a single file download, null if the format needs post processing of a file on disk
+     */
+    private final String streamFormat;
     private final String[] params;
 
-    FormatOption(String extension, String... params) {
+    FormatOption(String extension, String streamFormat, String... params) {
         this.extension = extension;
+        this.streamFormat = streamFormat;
         this.params = params;
     }
 
@@ -23,4 +28,18 @@ public enum FormatOption {
     public String getExtension() {
         return extension;
     }
+
+    /**
+     * @return true if the format can be downloaded to stdout, it must not need merging or audio extraction
+     */
+    public boolean isStreamable() {
+        return streamFormat != null;
+    }
+
+    /**
+     * @return the --format selecting a single file of this format, null if not {@link #isStreamable() streamable}
+     */
+    public String getStreamFormat() {
+        return streamFormat;
+    }
 }
@@ -0,0 +1,35 @@
+package com.wonkglorg.ytdlp.utils;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies urls of well known sites as playlist or single video without asking yt-dlp
+ */
+public final class PlaylistUrls {
+    private static final Pattern youtubeHost = Pattern.compile("^(?:https?://)?(?:[\\w-]+\\.)?(?:youtube\\.com|youtu\\.be)(?:[/?#]|$)", Pattern.CASE_INSENSITIVE);
+    /**
+     * A list parameter (yt-dlp extracts the whole playlist unless --no-playlist is set), the playlist page or a channel
+     */
+    private static final Pattern youtubePlaylist = Pattern.compile("^(?:https?://)?(?:[\\w-]+\\.)?youtube\\.com/(?:[^#]*[?&]list=|playlist\\b|@[^/?#]+|channel/|c/|user/)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern youtubeVideo = Pattern.compile("^(?:https?://)?(?:[\\w-]+\\.)?(?:youtube\\.com/(?:watch\\?|shorts/|embed/|live/|v/)|youtu\\.be/)", Pattern.CASE_INSENSITIVE);
+
+    private PlaylistUrls() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    /**
+     * @param url the url
+     * @return true for a playlist, false for a single video, empty if the url can not be classified without yt-dlp
+     */
+    public static Optional<Boolean> classify(String url) {
+        String trimmed = url.trim();
+        if (!youtubeHost.matcher(trimmed).find()) return Optional.empty();
+        if (youtubePlaylist.matcher(trimmed).find()) return Optional.of(true);
+        if (youtubeVideo.matcher(trimmed).find()) {
+            // youtu.be links can carry a list parameter as well
+            return Optional.of(trimmed.contains("list="));
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,118 @@
+package com.wonkglorg.ytdlp.utils;
+
+import java.util.Locale;
+
+/**
+ * Machine readable progress output, passed to yt-dlp with {@code --progress-template} and parsed without regular
+ * expressions or intermediate strings.
+ * <br>
+ * Every progress line is {@link #MARKER} followed by the downloaded bytes, total bytes, estimated total bytes, speed in
+ * bytes per second, eta in seconds, fragment index and fragment count separated by {@code |}. Unknown values are printed
+ * as "NA" by yt-dlp and parsed as -1.
+ */
+public final class ProgressTemplate {
+    /**
+     * Prefix identifying a progress line
+     */
+    public static final String MARKER = "[yt-dlp-java:progress]";
+
+    /**
+     * The value of the --progress-template option (contains no spaces, the command is split on them)
+     */
+    public static final String TEMPLATE = "download:" + MARKER
+            + "%(progress.downloaded_bytes)s|%(progress.total_bytes)s|%(progress.total_bytes_estimate)s|%(progress.speed)s"
+            + "|%(progress.eta)s|%(progress.fragment_index)s|%(progress.fragment_count)s";
+
+    /**
+     * Number of values in a progress line
+     */
+    public static final int FIELDS = 7;
+
+    public static final int DOWNLOADED_BYTES = 0;
+    public static final int TOTAL_BYTES = 1;
+    public static final int TOTAL_BYTES_ESTIMATE = 2;
+    public static final int SPEED = 3;
+    public static final int ETA = 4;
+    public static final int FRAGMENT_INDEX = 5;
+    public static final int FRAGMENT_COUNT = 6;
+
+    private ProgressTemplate() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    /**
+     * Parses a progress line into the given array
+     *
+     * @param line   the output line
+     * @param values array of at least {@link #FIELDS} length receiving the values, indexed by the field constants
+     * @return true if the line is a complete progress line, the content of values is undefined otherwise
+     */
+    public static boolean parse(CharSequence line, double[] values) {
+        int length = line.length();
+        int markerLength = MARKER.length();
+        if (length < markerLength) return false;
+        for (int i = 0; i < markerLength; i++) {
+            if (line.charAt(i) != MARKER.charAt(i)) return false;
+        }
+
+        int field = 0;
+        int start = markerLength;
+        for (int i = markerLength; i <= length; i++) {
+            if (i == length || line.charAt(i) == '|') {
+                if (field == FIELDS) return false;
+                values[field++] = parseNumber(line, start, i);
+                start = i + 1;
+            }
+        }
+        return field == FIELDS;
+    }
+
+    /**
+     * Parses a non negative decimal number such as "1234" or "1234.5"
+     *
+     * @return the number, -1 for "NA" or anything that is not a number
+     */
+    static double parseNumber(CharSequence text, int start, int end) {
+        if (start >= end) return -1;
+        long integer = 0;
+        long fraction = 0;
+        long divisor = 1;
+        boolean inFraction = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (inFraction) {
+                    // digits beyond the precision of a double are dropped
+                    if (divisor < 1_000_000_000_000L) {
+                        fraction = fraction * 10 + (c - '0');
+                        divisor *= 10;
+                    }
+                } else {
+                    integer = integer * 10 + (c - '0');
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                return -1;
+            }
+        }
+        return integer + (double) fraction / divisor;
+    }
+
+    /**
+     * Formats a byte count the way yt-dlp does, for example "12.34MiB"
+     *
+     * @param bytes the byte count, negative if unknown
+     * @return the formatted size, "N/A" if unknown
+     */
+    public static String formatBytes(double bytes) {
+        if (bytes < 0) return "N/A";
+        String[] units = {"B", "KiB", "MiB", "GiB", "TiB"};
+        int unit = 0;
+        while (bytes >= 1024 && unit < units.length - 1) {
+            bytes /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ROOT, "%.2f%s", bytes, units[unit]);
+    }
+}
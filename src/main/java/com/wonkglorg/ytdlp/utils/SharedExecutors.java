@@ -0,0 +1,131 @@
+package com.wonkglorg.ytdlp.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * The executors the library uses when none is supplied by the caller, created on first use and reused for every call.
+ * <br>
+ * Their threads are daemon threads so they never keep the jvm alive, call {@link #shutdown()} once on application
+ * shutdown to stop them cleanly. Using them after a shutdown creates new executors.
+ */
+public final class SharedExecutors {
+    private static final Logger log = Logger.getLogger(SharedExecutors.class.getName());
+
+    private static ExecutorService taskExecutor;
+    private static ExecutorService streamExecutor;
+    private static ExecutorService virtualExecutor;
+    private static ScheduledExecutorService scheduler;
+    private static boolean warnedVirtualFallback = false;
+
+    private SharedExecutors() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    /**
+     * The tasks block on yt-dlp processes and may wait for other tasks (a download handle waiting for an identical
+     * download, a sharded extraction or a prefetched playlist page), so the pool is not bounded, the number of processes
+     * is limited by the {@link com.wonkglorg.ytdlp.scheduler.ProcessScheduler} instead
+     *
+     * @return the executor for parallel tasks such as playlist downloads, a cached pool reusing idle threads
+     */
+    public static synchronized ExecutorService taskExecutor() {
+        if (taskExecutor == null || taskExecutor.isShutdown()) {
+            taskExecutor = Executors.newCachedThreadPool(daemonFactory("yt-dlp-task-"));
+        }
+        return taskExecutor;
+    }
+
+    /**
+     * @return the executor reading process output streams, a cached pool since every stream blocks a thread while open
+     */
+    public static synchronized ExecutorService streamExecutor() {
+        if (streamExecutor == null || streamExecutor.isShutdown()) {
+            streamExecutor = Executors.newCachedThreadPool(daemonFactory("yt-dlp-stream-"));
+        }
+        return streamExecutor;
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task (requires Java 21+), falls back to {@link #taskExecutor()}
+     */
+    public static synchronized ExecutorService virtualExecutor() {
+        if (!VirtualThreads.isSupported()) {
+            if (!warnedVirtualFallback) {
+                log.warning("Virtual threads are not supported by this jvm (requires Java 21+), using the shared task executor instead");
+                warnedVirtualFallback = true;
+            }
+            return taskExecutor();
+        }
+        if (virtualExecutor == null || virtualExecutor.isShutdown()) {
+            virtualExecutor = VirtualThreads.newPerTaskExecutorOrFixedPool();
+        }
+        return virtualExecutor;
+    }
+
+    /**
+     * @return the executor running timed checks such as download timeouts, a single thread that must only run short tasks
+     */
+    public static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null || scheduler.isShutdown()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(daemonFactory("yt-dlp-scheduler-"));
+        }
+        return scheduler;
+    }
+
+    /**
+     * Shuts down all shared executors, waiting up to the given time for running tasks to finish before interrupting them
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     */
+    public static void shutdown(long timeout, TimeUnit unit) {
+        ExecutorService[] executors;
+        synchronized (SharedExecutors.class) {
+            executors = new ExecutorService[]{taskExecutor, streamExecutor, virtualExecutor, scheduler};
+            taskExecutor = null;
+            streamExecutor = null;
+            virtualExecutor = null;
+            scheduler = null;
+        }
+
+        for (ExecutorService executor : executors) {
+            if (executor != null) executor.shutdown();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (ExecutorService executor : executors) {
+                if (executor != null && !executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                    log.warning("Shared executor did not terminate in time, running tasks were interrupted");
+                }
+            }
+        } catch (InterruptedException e) {
+            for (ExecutorService executor : executors) {
+                if (executor != null) executor.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Shuts down all shared executors, waiting up to 60 seconds for running tasks to finish
+     */
+    public static void shutdown() {
+        shutdown(60, TimeUnit.SECONDS);
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.wonkglorg.ytdlp.utils;
+
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent work for the same key, callers arriving while a key is in flight wait for and share its
+ * result (or failure) instead of running the work again
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the work for a key unless it is already in flight
+     *
+     * @param key  the key
+     * @param work the work, only run if no other caller is running it for the same key
+     * @return the result of the work
+     * @throws YtDlpException if interrupted while waiting for another caller, exceptions of the work are rethrown
+     */
+    public V execute(K key, Supplier<V> work) throws YtDlpException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) return await(existing);
+
+        try {
+            V result = work.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return number of keys currently in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight) throws YtDlpException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new YtDlpException(e);
+        }
+    }
+}
@@ -1,26 +1,32 @@
 package com.wonkglorg.ytdlp.utils;
 
+import com.wonkglorg.ytdlp.capture.OutputSink;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 
-public class StreamGobbler extends Thread {
+/**
+ * Reads a stream into a buffer until its end, run it on its own thread or executor
+ */
+public class StreamGobbler implements Runnable {
 
-    private InputStream stream;
-    private StringBuilder buffer;
+    private final StreamLineReader reader;
+    private final Writer buffer;
 
     public StreamGobbler(StringBuilder buffer, InputStream stream) {
-        this.stream = stream;
+        this(OutputSink.into(buffer), stream);
+    }
+
+    public StreamGobbler(Writer buffer, InputStream stream) {
+        this.reader = new StreamLineReader(stream);
         this.buffer = buffer;
-        start();
     }
 
     @Override
     public void run() {
         try {
-            int nextChar;
-            while ((nextChar = this.stream.read()) != -1) {
-                this.buffer.append((char) nextChar);
-            }
+            reader.read(buffer, null);
         } catch (IOException e) {
             e.printStackTrace();
         }
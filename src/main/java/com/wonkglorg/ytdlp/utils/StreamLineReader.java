@@ -0,0 +1,139 @@
+package com.wonkglorg.ytdlp.utils;
+
+import com.wonkglorg.ytdlp.capture.OutputSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a process output stream in bulk blocks, decoding it with the given charset (multibyte characters split across
+ * blocks are handled by the underlying decoder) and splitting it into lines on {@code \r} and {@code \n}.
+ * <br>
+ * Lines are handed out as views into the internal buffer, they are only valid for the duration of the
+ * {@link LineListener#onLine(CharSequence, int)} call, use {@link CharSequence#toString()} to keep them.
+ */
+public class StreamLineReader {
+    /**
+     * The default amount of chars read per block
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * Terminator passed to the {@link LineListener} for the last line if the stream did not end with a line break
+     */
+    public static final int END_OF_STREAM = -1;
+
+    private final Reader reader;
+    private char[] buffer;
+
+    /**
+     * Called for every line read
+     */
+    @FunctionalInterface
+    public interface LineListener {
+        /**
+         * @param line       the line content without its terminator (only valid during this call)
+         * @param terminator the char that ended the line ({@code '\r'} or {@code '\n'}) or {@link #END_OF_STREAM}
+         */
+        void onLine(CharSequence line, int terminator);
+    }
+
+    public StreamLineReader(InputStream stream) {
+        this(stream, StandardCharsets.UTF_8);
+    }
+
+    public StreamLineReader(InputStream stream, Charset charset) {
+        this(stream, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamLineReader(InputStream stream, Charset charset, int bufferSize) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be greater than 0");
+        this.reader = new InputStreamReader(stream, charset);
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Reads the stream until its end
+     *
+     * @param raw      the buffer every decoded char gets appended to (may be null)
+     * @param listener the listener called for every line (may be null, if so no line splitting is done)
+     * @throws IOException if the stream could not be read
+     */
+    public void read(StringBuilder raw, LineListener listener) throws IOException {
+        read(raw == null ? null : OutputSink.into(raw), listener);
+    }
+
+    /**
+     * Reads the stream until its end
+     *
+     * @param raw      the writer every decoded block gets written to (may be null)
+     * @param listener the listener called for every line (may be null, if so no line splitting is done)
+     * @throws IOException if the stream could not be read or written to the writer
+     */
+    public void read(Writer raw, LineListener listener) throws IOException {
+        //start of the current line and end of the valid data in the buffer
+        int lineStart = 0;
+        int limit = 0;
+        boolean lastWasCarriageReturn = false;
+
+        while (true) {
+            if (limit == buffer.length) {
+                if (lineStart > 0) {
+                    //move the unfinished line to the front to make room for the next block
+                    System.arraycopy(buffer, lineStart, buffer, 0, limit - lineStart);
+                    limit -= lineStart;
+                    lineStart = 0;
+                } else {
+                    //single line larger than the buffer
+                    char[] grown = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, limit);
+                    buffer = grown;
+                }
+            }
+
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == -1) break;
+
+            if (raw != null) raw.write(buffer, limit, read);
+
+            int end = limit + read;
+            if (listener == null) {
+                //nothing to split, the buffer can be reused from the start
+                limit = 0;
+                continue;
+            }
+
+            for (int i = limit; i < end; i++) {
+                char c = buffer[i];
+                if (c != '\r' && c != '\n') continue;
+
+                //treat \r\n as a single line break
+                if (c == '\n' && lastWasCarriageReturn && i == lineStart) {
+                    lastWasCarriageReturn = false;
+                    lineStart = i + 1;
+                    continue;
+                }
+
+                listener.onLine(CharBuffer.wrap(buffer, lineStart, i - lineStart), c);
+                lineStart = i + 1;
+                lastWasCarriageReturn = c == '\r';
+            }
+
+            if (lineStart == end) {
+                lineStart = 0;
+                limit = 0;
+            } else {
+                limit = end;
+            }
+        }
+
+        if (listener != null && limit > lineStart) {
+            listener.onLine(CharBuffer.wrap(buffer, lineStart, limit - lineStart), END_OF_STREAM);
+        }
+    }
+}
@@ -2,15 +2,20 @@ package com.wonkglorg.ytdlp.utils;
 
 import com.wonkglorg.ytdlp.YtDlpRequest;
 import com.wonkglorg.ytdlp.callback.*;
+import com.wonkglorg.ytdlp.capture.OutputSink;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class StreamProcessExtractor extends Thread {
+/**
+ * Reads the yt-dlp output stream into a buffer and notifies the request callbacks, run it on its own thread or executor
+ */
+public class StreamProcessExtractor implements Runnable {
     private static final Logger log = Logger.getLogger(StreamProcessExtractor.class.getName());
     private static final String GROUP_SIZE = "size";
     private static final String GROUP_SPEED = "speed";
@@ -21,19 +26,24 @@ public class StreamProcessExtractor extends Thread {
     private static final String GROUP_SECONDS = "seconds";
     private static final String GROUP_URL = "url";
     private static final String GROUP_FILENAME = "filename";
-    private final InputStream stream;
-    private final StringBuilder buffer;
+    private final StreamLineReader reader;
+    private final Writer buffer;
     private final DownloadProgressCallback progressCallback;
     private final DownloadStartCallback startCallback;
     private final DownloadEndCallback endCallback;
     private final DownloadLineCallback lineCallback;
+    private final boolean structuredProgress;
+    /**
+     * Reused for every structured progress line
+     */
+    private final double[] progressValues = new double[ProgressTemplate.FIELDS];
     private String destinationFile = null;
     private String url = null;
     private boolean hasReadHeader = false;
 
     private final Pattern downloadProgressPattern =
             Pattern.compile(
-                    "\\[download]\\s+(?<percent>\\d+\\.\\d+)%\\s+of\\s+~?\\s+(?<size>\\d+\\.\\d+\\w+)\\s+at\\s+(?<speed>\\d+\\.\\d+\\w+/s)\\s+ETA\\s+(?<minutes>\\d+):(?<seconds>\\d+)(?:\\s+\\(frag\\s+(?<fragCurrent>\\d+)/(?<fragMax>\\d+)\\))?");
+                    "\\[download]\\s+(?<percent>\\d+(?:\\.\\d+)?)%\\s+of\\s+~?\\s*(?<size>\\d+(?:\\.\\d+)?\\w+)\\s+at\\s+(?<speed>\\d+(?:\\.\\d+)?\\w+/s|Unknown B/s)\\s+ETA\\s+(?:(?<minutes>\\d+):(?<seconds>\\d+)|Unknown)(?:\\s+\\(frag\\s+(?<fragCurrent>\\d+)/(?<fragMax>\\d+)\\))?");
 
     private final Pattern urlPattern = Pattern.compile("\\[youtube] Extracting URL: (?<url>https?://\\S+)");
 
@@ -41,30 +51,25 @@ public class StreamProcessExtractor extends Thread {
 
     public StreamProcessExtractor(
             StringBuilder buffer, InputStream stream, YtDlpRequest request) {
-        this.stream = stream;
+        this(OutputSink.into(buffer), stream, request);
+    }
+
+    public StreamProcessExtractor(
+            Writer buffer, InputStream stream, YtDlpRequest request) {
+        this.reader = new StreamLineReader(stream);
         this.buffer = buffer;
         this.progressCallback = request.getDownloadProgressCallback();
         this.startCallback = request.getDownloadStartCallback();
         this.endCallback = request.getDownloadEndCallback();
         this.lineCallback = request.getDownloadLineCallback();
-        this.start();
+        this.structuredProgress = request.isStructuredProgress();
     }
 
     @Override
     public void run() {
         long startTime = System.currentTimeMillis();
         try {
-            StringBuilder currentLine = new StringBuilder();
-            int nextChar;
-            while ((nextChar = stream.read()) != -1) {
-                buffer.append((char) nextChar);
-                if (nextChar == '\r' && progressCallback != null) {
-                    processOutputLine(currentLine.toString());
-                    currentLine.setLength(0);
-                    continue;
-                }
-                currentLine.append((char) nextChar);
-            }
+            reader.read(buffer, this::processOutputLine);
             if (endCallback != null) {
                 endCallback.onDownloadEnd(destinationFile, url, System.currentTimeMillis() - startTime);
             }
@@ -73,45 +78,58 @@ public class StreamProcessExtractor extends Thread {
         }
     }
 
-    private void processOutputLine(String line) {
+    private void processOutputLine(CharSequence line, int terminator) {
 
         if (lineCallback != null) {
-            lineCallback.onLineOutput(line);
+            lineCallback.onLineOutput(line.toString());
         }
-        Matcher downloadMatcher = downloadProgressPattern.matcher(line);
-        if (downloadMatcher.matches()) {
-            progressCallback.onProgressUpdate(constructCallBackData(downloadMatcher));
-            return;
+        if (progressCallback != null && structuredProgress) {
+            if (ProgressTemplate.parse(line, progressValues)) {
+                finishHeader();
+                progressCallback.onProgressUpdate(constructCallBackData(progressValues));
+                return;
+            }
+        } else if (progressCallback != null) {
+            Matcher downloadMatcher = downloadProgressPattern.matcher(line);
+            if (downloadMatcher.matches()) {
+                finishHeader();
+                progressCallback.onProgressUpdate(constructCallBackData(downloadMatcher));
+                return;
+            }
         }
-        //reads header data (its sent as 1 line with \n separated lines)
+        //reads header data, the header ends with the first carriage return (start of the progress output)
         if (!hasReadHeader) {
             extractHeaderData(line);
-            if (startCallback != null) {
-                startCallback.onDownloadStart(destinationFile, url);
+            if (terminator == '\r') {
+                finishHeader();
             }
-            hasReadHeader = true;
         }
     }
 
-    private void extractHeaderData(String line) {
-        String[] headers = line.split("\n");
-        for (String header : headers) {
-            Matcher urlMatcher = urlPattern.matcher(header);
-            if (urlMatcher.matches()) {
-                url = urlMatcher.group(GROUP_URL);
-                continue;
-            }
+    private void finishHeader() {
+        if (hasReadHeader) return;
+        hasReadHeader = true;
+        if (startCallback != null) {
+            startCallback.onDownloadStart(destinationFile, url);
+        }
+    }
 
-            Matcher destinationMatcher = destinationPattern.matcher(header);
-            if (destinationMatcher.matches()) {
-                String file = destinationMatcher.group(GROUP_FILENAME);
+    private void extractHeaderData(CharSequence header) {
+        Matcher urlMatcher = urlPattern.matcher(header);
+        if (urlMatcher.matches()) {
+            url = urlMatcher.group(GROUP_URL);
+            return;
+        }
 
-                if (url != null && url.split("=").length > 1) {
-                    file = file.replace("[" + url.split("=")[1] + "]", "");
-                }
-                file = file.replace(" .f616", "");
-                destinationFile = file;
+        Matcher destinationMatcher = destinationPattern.matcher(header);
+        if (destinationMatcher.matches()) {
+            String file = destinationMatcher.group(GROUP_FILENAME);
+
+            if (url != null && url.split("=").length > 1) {
+                file = file.replace("[" + url.split("=")[1] + "]", "");
             }
+            file = file.replace(" .f616", "");
+            destinationFile = file;
         }
     }
 
@@ -125,6 +143,17 @@ public class StreamProcessExtractor extends Thread {
         return new ProgressCallBackData(url, destinationFile, progress, totalFileSize, speed, eta, currFragment, totalFragments);
     }
 
+    private ProgressCallBackData constructCallBackData(double[] values) {
+        long downloaded = (long) values[ProgressTemplate.DOWNLOADED_BYTES];
+        long total = (long) (values[ProgressTemplate.TOTAL_BYTES] >= 0 ? values[ProgressTemplate.TOTAL_BYTES] : values[ProgressTemplate.TOTAL_BYTES_ESTIMATE]);
+        double speed = values[ProgressTemplate.SPEED];
+        float progress = total > 0 && downloaded >= 0 ? (float) (downloaded * 100d / total) : 0;
+        String speedText = speed < 0 ? "N/A" : ProgressTemplate.formatBytes(speed) + "/s";
+        return new ProgressCallBackData(url, destinationFile, progress, ProgressTemplate.formatBytes(total), speedText,
+                (long) values[ProgressTemplate.ETA], (int) Math.max(0, values[ProgressTemplate.FRAGMENT_INDEX]),
+                (int) Math.max(0, values[ProgressTemplate.FRAGMENT_COUNT]), downloaded, total, speed);
+    }
+
     private Integer parseIntOrDefault(String value, int defaultValue) {
         try {
             return Integer.parseInt(value);
@@ -134,6 +163,8 @@ public class StreamProcessExtractor extends Thread {
     }
 
     private int convertToSeconds(String minutes, String seconds) {
+        // unknown eta
+        if (minutes == null) return -1;
         return Integer.parseInt(minutes) * 60 + Integer.parseInt(seconds);
     }
 }
@@ -0,0 +1,72 @@
+package com.wonkglorg.ytdlp.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Access to virtual threads when running on Java 21+, looked up reflectively so the library still runs on older versions
+ */
+public final class VirtualThreads {
+    private static final Logger log = Logger.getLogger(VirtualThreads.class.getName());
+
+    /**
+     * Factory creating virtual threads, null if not supported by the running jvm
+     */
+    private static final ThreadFactory factory = createFactory();
+
+    private VirtualThreads() {
+        // Private constructor is here to encourage static usage of this class
+    }
+
+    private static ThreadFactory createFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "yt-dlp-virtual-", 0L);
+            Method factoryMethod = builderClass.getMethod("factory");
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the running jvm supports virtual threads
+     */
+    public static boolean isSupported() {
+        return factory != null;
+    }
+
+    /**
+     * Creates a thread factory for virtual threads if supported, otherwise falls back to the given platform factory
+     *
+     * @param fallback the factory to use when virtual threads are not supported
+     * @return the thread factory
+     */
+    public static ThreadFactory factoryOrElse(ThreadFactory fallback) {
+        if (factory != null) return factory;
+        log.warning("Virtual threads are not supported by this jvm (requires Java 21+), using platform threads instead");
+        return fallback;
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for every task if supported, otherwise a fixed platform thread
+     * pool with one thread per available processor
+     *
+     * @return the executor
+     */
+    public static ExecutorService newPerTaskExecutorOrFixedPool() {
+        if (factory != null) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(factory);
+            }
+        }
+        log.warning("Virtual threads are not supported by this jvm (requires Java 21+), using a fixed thread pool instead");
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,190 @@
+package com.wonkglorg.ytdlp.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wonkglorg.ytdlp.exception.WorkerException;
+import com.wonkglorg.ytdlp.mapper.JsonReaders;
+import com.wonkglorg.ytdlp.utils.SharedExecutors;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single long lived worker process, driven over its stdin and stdout with one json object per line.
+ * <br>
+ * Not thread safe, a worker runs one job at a time and is only used by the thread that took it from the pool.
+ */
+class Worker {
+    private final Process process;
+    private final BufferedWriter writer;
+    private final BufferedReader reader;
+    private int jobs;
+    private long lastUsed = System.nanoTime();
+    private boolean broken;
+
+    private Worker(Process process) {
+        this.process = process;
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Starts a worker and waits for it to report it is ready
+     *
+     * @param command        the command starting the worker
+     * @param startupTimeout maximum time in milliseconds to wait for the worker to be ready
+     * @return the ready worker
+     * @throws WorkerException if the worker could not be started
+     */
+    static Worker start(List<String> command, long startupTimeout) throws WorkerException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        // output outside of jobs is not part of the protocol, discarding it keeps the worker from blocking on a full pipe
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.environment().put("PYTHONIOENCODING", "utf-8");
+
+        Worker worker;
+        try {
+            worker = new Worker(processBuilder.start());
+        } catch (IOException e) {
+            throw new WorkerException(e);
+        }
+
+        JsonNode ready = worker.readResponse(startupTimeout);
+        if (!ready.path("ready").asBoolean()) {
+            worker.close();
+            throw new WorkerException("Worker did not report ready: " + ready);
+        }
+        return worker;
+    }
+
+    /**
+     * Runs a job
+     *
+     * @param args      yt-dlp arguments (without the executable)
+     * @param directory working directory of the job, null for the worker's directory
+     * @param timeout   maximum time in milliseconds to wait for the job to finish
+     * @return the job result
+     * @throws WorkerException if the worker failed, it is unusable afterwards
+     */
+    WorkerResult execute(List<String> args, String directory, long timeout) throws WorkerException {
+        ObjectNode job = JsonNodeFactory.instance.objectNode();
+        ArrayNode arguments = job.putArray("args");
+        args.forEach(arguments::add);
+        if (directory != null) job.put("cwd", directory);
+
+        jobs++;
+        JsonNode response = request(job, timeout);
+        if (!response.has("exit")) {
+            broken = true;
+            throw new WorkerException("Unexpected worker response: " + response);
+        }
+        return new WorkerResult(response.get("exit").asInt(), response.path("out").asText(), response.path("err").asText());
+    }
+
+    /**
+     * @param timeout maximum time in milliseconds to wait for the answer
+     * @return true if the worker answered the health check
+     */
+    boolean ping(long timeout) {
+        try {
+            ObjectNode ping = JsonNodeFactory.instance.objectNode();
+            ping.put("op", "ping");
+            return request(ping, timeout).path("pong").asBoolean();
+        } catch (WorkerException e) {
+            return false;
+        }
+    }
+
+    private JsonNode request(ObjectNode message, long timeout) throws WorkerException {
+        try {
+            writer.write(message.toString());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            broken = true;
+            throw new WorkerException(e);
+        }
+        JsonNode response = readResponse(timeout);
+        lastUsed = System.nanoTime();
+        return response;
+    }
+
+    /**
+     * Reads the next response line, a worker not answering in time is killed since its state is unknown
+     */
+    private JsonNode readResponse(long timeout) throws WorkerException {
+        Future<String> line = SharedExecutors.streamExecutor().submit(reader::readLine);
+        try {
+            String response = line.get(timeout, TimeUnit.MILLISECONDS);
+            if (response == null) {
+                broken = true;
+                throw new WorkerException("Worker exited unexpectedly");
+            }
+            return JsonReaders.readTree(response);
+        } catch (TimeoutException e) {
+            broken = true;
+            close();
+            throw new WorkerException("Worker did not answer within " + timeout + "ms");
+        } catch (ExecutionException | IOException e) {
+            broken = true;
+            throw new WorkerException(e.getCause() instanceof Exception cause ? cause : e);
+        } catch (InterruptedException e) {
+            // the response can no longer be matched to its request
+            broken = true;
+            close();
+            Thread.currentThread().interrupt();
+            throw new WorkerException(e);
+        }
+    }
+
+    /**
+     * @return number of jobs this worker ran
+     */
+    int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * @return nanoTime of the last answer received from this worker
+     */
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * @return true if the worker can take further jobs
+     */
+    boolean isUsable() {
+        return !broken && process.isAlive();
+    }
+
+    /**
+     * Stops the worker, closing its stdin lets it exit on its own before it is destroyed
+     */
+    void close() {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // the worker already exited
+        }
+        try {
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
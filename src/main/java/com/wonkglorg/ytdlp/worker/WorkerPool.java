@@ -0,0 +1,203 @@
+package com.wonkglorg.ytdlp.worker;
+
+import com.wonkglorg.ytdlp.exception.WorkerException;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Keeps long lived yt-dlp worker processes so short calls do not pay for the python interpreter startup and the
+ * yt_dlp import every time.
+ * <br>
+ * Workers are started on demand up to the pool size, checked with a ping when they were idle for longer than
+ * {@link #getHealthCheckAfter()} and replaced after {@link #getMaxJobsPerWorker()} jobs to bound any state yt_dlp
+ * accumulates. The bundled shim ({@link #withBundledShim(String, int, int)}) speaks the protocol, see its source for the
+ * message format.
+ */
+public class WorkerPool implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(WorkerPool.class.getName());
+
+    /**
+     * Classpath location of the bundled python shim
+     */
+    private static final String SHIM_RESOURCE = "/com/wonkglorg/ytdlp/worker/yt_dlp_worker.py";
+
+    private final List<String> command;
+    private final int size;
+    private final int maxJobsPerWorker;
+    private final Semaphore available;
+    private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    private long startupTimeout = TimeUnit.SECONDS.toMillis(30);
+    private long jobTimeout = TimeUnit.MINUTES.toMillis(10);
+    private long healthCheckAfter = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * @param command          the command starting a worker speaking the protocol of the bundled shim
+     * @param size             maximum number of workers
+     * @param maxJobsPerWorker number of jobs after which a worker is replaced
+     */
+    public WorkerPool(List<String> command, int size, int maxJobsPerWorker) {
+        if (size <= 0) throw new IllegalArgumentException("size must be greater than 0");
+        if (maxJobsPerWorker <= 0) throw new IllegalArgumentException("maxJobsPerWorker must be greater than 0");
+        this.command = List.copyOf(command);
+        this.size = size;
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.available = new Semaphore(size, true);
+    }
+
+    /**
+     * Creates a pool running the bundled shim, requires yt_dlp to be importable by the given python
+     *
+     * @param pythonExecutable the python executable, for example "python3"
+     * @param size             maximum number of workers
+     * @param maxJobsPerWorker number of jobs after which a worker is replaced
+     * @return the pool
+     * @throws YtDlpException if the shim could not be extracted
+     */
+    public static WorkerPool withBundledShim(String pythonExecutable, int size, int maxJobsPerWorker) throws YtDlpException {
+        return new WorkerPool(List.of(pythonExecutable, extractShim().toString()), size, maxJobsPerWorker);
+    }
+
+    private static Path extractShim() throws YtDlpException {
+        try (InputStream shim = WorkerPool.class.getResourceAsStream(SHIM_RESOURCE)) {
+            if (shim == null) throw new YtDlpException("Bundled worker shim not found: " + SHIM_RESOURCE);
+            Path path = Files.createTempFile("yt_dlp_worker", ".py");
+            path.toFile().deleteOnExit();
+            Files.copy(shim, path, StandardCopyOption.REPLACE_EXISTING);
+            return path;
+        } catch (IOException e) {
+            throw new YtDlpException(e);
+        }
+    }
+
+    /**
+     * Runs a job on a free worker, waiting for one if all are busy
+     *
+     * @param args      yt-dlp arguments (without the executable)
+     * @param directory working directory of the job, null for the worker's directory
+     * @return the job result, a non zero exit code is returned and not thrown
+     * @throws WorkerException if no worker could run the job, running it as a separate process may still succeed
+     * @throws YtDlpException  if interrupted while waiting for a worker
+     */
+    public WorkerResult execute(List<String> args, String directory) throws YtDlpException {
+        if (closed) throw new WorkerException("Worker pool is closed");
+        try {
+            available.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException(e);
+        }
+
+        Worker worker = null;
+        try {
+            worker = takeWorker();
+            return worker.execute(args, directory, jobTimeout);
+        } finally {
+            if (worker != null) returnWorker(worker);
+            available.release();
+        }
+    }
+
+    /**
+     * Takes an idle worker that passes the health check or starts a new one
+     */
+    private Worker takeWorker() throws WorkerException {
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            boolean stale = System.nanoTime() - worker.getLastUsed() > TimeUnit.MILLISECONDS.toNanos(healthCheckAfter);
+            if (worker.isUsable() && (!stale || worker.ping(startupTimeout))) {
+                return worker;
+            }
+            log.fine("Discarding unhealthy worker");
+            worker.close();
+        }
+        return Worker.start(command, startupTimeout);
+    }
+
+    private void returnWorker(Worker worker) {
+        if (closed || !worker.isUsable() || worker.getJobs() >= maxJobsPerWorker) {
+            worker.close();
+            return;
+        }
+        // most recently used first, rarely needed workers go stale and are checked before reuse
+        idle.offerFirst(worker);
+        if (closed && idle.remove(worker)) {
+            // closed while the worker was returned
+            worker.close();
+        }
+    }
+
+    /**
+     * Stops all idle workers, busy workers are stopped once their job finished
+     */
+    @Override
+    public void close() {
+        closed = true;
+        List<Worker> workers = new ArrayList<>();
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            workers.add(worker);
+        }
+        workers.forEach(Worker::close);
+    }
+
+    /**
+     * @return number of idle workers
+     */
+    public int getIdleWorkers() {
+        return idle.size();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxJobsPerWorker() {
+        return maxJobsPerWorker;
+    }
+
+    public long getStartupTimeout() {
+        return startupTimeout;
+    }
+
+    /**
+     * @param startupTimeout maximum time in milliseconds to wait for a worker to start or answer a health check
+     */
+    public void setStartupTimeout(long startupTimeout) {
+        this.startupTimeout = startupTimeout;
+    }
+
+    public long getJobTimeout() {
+        return jobTimeout;
+    }
+
+    /**
+     * @param jobTimeout maximum time in milliseconds to wait for a job, a worker exceeding it is killed
+     */
+    public void setJobTimeout(long jobTimeout) {
+        this.jobTimeout = jobTimeout;
+    }
+
+    public long getHealthCheckAfter() {
+        return healthCheckAfter;
+    }
+
+    /**
+     * @param healthCheckAfter idle time in milliseconds after which a worker is pinged before it is reused
+     */
+    public void setHealthCheckAfter(long healthCheckAfter) {
+        this.healthCheckAfter = healthCheckAfter;
+    }
+}
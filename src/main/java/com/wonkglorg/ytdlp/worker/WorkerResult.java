@@ -0,0 +1,34 @@
+package com.wonkglorg.ytdlp.worker;
+
+import java.util.Objects;
+
+/**
+ * Result of a job run by a worker, the equivalent of the exit code and output of a yt-dlp process
+ *
+ * @param exitCode the exit code yt-dlp finished with
+ * @param out      stdout of the job
+ * @param err      stderr of the job
+ */
+public record WorkerResult(int exitCode, String out, String err) {
+
+    @Override
+    public String toString() {
+        return "WorkerResult{" +
+                "exitCode=" + exitCode +
+                ", out='" + out + '\'' +
+                ", err='" + err + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof WorkerResult that)) return false;
+        return exitCode == that.exitCode && Objects.equals(out, that.out) && Objects.equals(err, that.err);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(exitCode, out, err);
+    }
+}
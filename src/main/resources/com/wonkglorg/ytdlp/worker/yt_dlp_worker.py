@@ -0,0 +1,63 @@
+"""
+Long lived yt-dlp worker used by com.wonkglorg.ytdlp.worker.WorkerPool
+
+yt_dlp is imported once, afterwards jobs are read from stdin and answered on stdout, one json object per line:
+  startup             -> {"ready": true, "version": "..."}
+  {"op": "ping"}      -> {"pong": true}
+  {"args": [...], "cwd": "..."} -> {"exit": 0, "out": "...", "err": "..."}
+"""
+import contextlib
+import io
+import json
+import os
+import sys
+
+import yt_dlp
+from yt_dlp.version import __version__
+
+protocol_out = sys.stdout
+
+
+def reply(message):
+    protocol_out.write(json.dumps(message) + "\n")
+    protocol_out.flush()
+
+
+def run(job):
+    out, err = io.StringIO(), io.StringIO()
+    cwd = os.getcwd()
+    exit_code = 0
+    try:
+        if job.get("cwd"):
+            os.chdir(job["cwd"])
+        with contextlib.redirect_stdout(out), contextlib.redirect_stderr(err):
+            try:
+                yt_dlp.main(job["args"])
+            except SystemExit as e:
+                if e.code is None or isinstance(e.code, int):
+                    exit_code = e.code or 0
+                else:
+                    err.write(str(e.code).strip() + "\n")
+                    exit_code = 1
+    except Exception as e:
+        err.write("ERROR: %s\n" % e)
+        exit_code = 1
+    finally:
+        os.chdir(cwd)
+    return {"exit": exit_code, "out": out.getvalue(), "err": err.getvalue()}
+
+
+def main():
+    reply({"ready": True, "version": __version__})
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        job = json.loads(line)
+        if job.get("op") == "ping":
+            reply({"pong": True})
+        else:
+            reply(run(job))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,146 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.cache.DiskMetadataCache;
+import com.wonkglorg.ytdlp.cache.InMemoryMetadataCache;
+import com.wonkglorg.ytdlp.cache.TieredMetadataCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class DiskMetadataCacheTest {
+
+    private static final String JSON = "{\"id\": \"first\", \"title\": \"Título – 日本語\"}";
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("ytdlp-metadata-cache");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void survivesRestart() throws IOException {
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            cache.put("video:a", JSON);
+            cache.put("video:b", "{}");
+            cache.invalidate("video:b");
+        }
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            Assert.assertEquals(Optional.of(JSON), cache.get("video:a"));
+            Assert.assertEquals(Optional.empty(), cache.get("video:b"));
+            Assert.assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void discardsTornRecord() throws IOException {
+        long completeSize;
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            cache.put("video:a", JSON);
+            completeSize = cache.getLogSize();
+            cache.put("video:b", JSON);
+        }
+        // simulates a crash in the middle of writing the second record
+        try (FileChannel log = FileChannel.open(directory.resolve("metadata.log"), StandardOpenOption.WRITE)) {
+            log.truncate(completeSize + 10);
+        }
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            Assert.assertEquals(Optional.of(JSON), cache.get("video:a"));
+            Assert.assertEquals(Optional.empty(), cache.get("video:b"));
+            Assert.assertEquals(completeSize, cache.getLogSize());
+            cache.put("video:b", JSON);
+        }
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            Assert.assertEquals(Optional.of(JSON), cache.get("video:b"));
+        }
+    }
+
+    @Test
+    public void discardsRecordWithDamagedLength() throws IOException {
+        long completeSize;
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            cache.put("video:a", JSON);
+            completeSize = cache.getLogSize();
+            cache.put("video:b", JSON);
+        }
+        // data length of the second record, magic, key length, key and expiry come before it
+        try (FileChannel log = FileChannel.open(directory.resolve("metadata.log"), StandardOpenOption.WRITE)) {
+            log.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 8), completeSize + 8 + "video:b".length() + 8);
+        }
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            Assert.assertEquals(Optional.of(JSON), cache.get("video:a"));
+            Assert.assertEquals(Optional.empty(), cache.get("video:b"));
+            Assert.assertEquals(completeSize, cache.getLogSize());
+        }
+    }
+
+    @Test
+    public void compactsReplacedEntries() throws IOException {
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            for (int i = 0; i < 20; i++) {
+                cache.put("video:a", JSON + i);
+            }
+            long before = cache.getLogSize();
+            cache.compact();
+            Assert.assertTrue(cache.getLogSize() < before / 10);
+            Assert.assertEquals(Optional.of(JSON + 19), cache.get("video:a"));
+        }
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory)) {
+            Assert.assertEquals(Optional.of(JSON + 19), cache.get("video:a"));
+        }
+    }
+
+    @Test
+    public void expiresEntries() throws Exception {
+        try (DiskMetadataCache cache = new DiskMetadataCache(directory, 20, false)) {
+            cache.put("video:a", JSON);
+            Thread.sleep(40);
+            Assert.assertEquals(Optional.empty(), cache.get("video:a"));
+        }
+    }
+
+    @Test
+    public void promotesDiskHits() throws IOException {
+        try (DiskMetadataCache disk = new DiskMetadataCache(directory)) {
+            disk.put("video:a", JSON);
+            InMemoryMetadataCache memory = new InMemoryMetadataCache();
+            TieredMetadataCache cache = new TieredMetadataCache(memory, disk);
+
+            Assert.assertEquals(Optional.of(JSON), cache.get("video:a"));
+            Assert.assertEquals(Optional.of(JSON), memory.get("video:a"));
+        }
+    }
+
+    @Test
+    public void promotedEntriesKeepTheirExpiry() throws Exception {
+        try (DiskMetadataCache disk = new DiskMetadataCache(directory, 300, false)) {
+            disk.put("video:a", JSON);
+            InMemoryMetadataCache memory = new InMemoryMetadataCache();
+            TieredMetadataCache cache = new TieredMetadataCache(memory, disk);
+            Thread.sleep(100);
+
+            Assert.assertEquals(Optional.of(JSON), cache.get("video:a"));
+            Assert.assertTrue(memory.remainingTtl("video:a").orElseThrow() <= 200);
+            Thread.sleep(250);
+            Assert.assertEquals(Optional.empty(), memory.get("video:a"));
+        }
+    }
+}
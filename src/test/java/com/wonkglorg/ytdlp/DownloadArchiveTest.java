@@ -0,0 +1,59 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.archive.DownloadArchive;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class DownloadArchiveTest {
+
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("ytdlp-archive", ".txt");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void readsYtDlpArchive() throws IOException {
+        Files.writeString(file, "youtube dQw4w9WgXcQ\nvimeo 12345\n", StandardCharsets.UTF_8);
+        DownloadArchive archive = DownloadArchive.load(file);
+
+        Assert.assertEquals(2, archive.size());
+        Assert.assertTrue(archive.contains("Youtube", "dQw4w9WgXcQ"));
+        Assert.assertTrue(archive.contains("vimeo", "12345"));
+        Assert.assertFalse(archive.contains("Youtube", "12345"));
+    }
+
+    @Test
+    public void appendsEntries() throws IOException {
+        DownloadArchive archive = DownloadArchive.load(file);
+        archive.add("Youtube", "dQw4w9WgXcQ");
+        archive.add("Youtube", "dQw4w9WgXcQ");
+
+        Assert.assertEquals(List.of("youtube dQw4w9WgXcQ"), Files.readAllLines(file));
+        Assert.assertTrue(DownloadArchive.load(file).contains("Youtube", "dQw4w9WgXcQ"));
+    }
+
+    @Test
+    public void ignoresTornLastLine() throws IOException {
+        Files.writeString(file, "youtube dQw4w9WgXcQ\nyoutube abc", StandardCharsets.UTF_8);
+        DownloadArchive archive = DownloadArchive.load(file);
+        Assert.assertFalse(archive.contains("Youtube", "abc"));
+
+        archive.add("Youtube", "abcdefghijk");
+        Assert.assertEquals(List.of("youtube dQw4w9WgXcQ", "youtube abc", "youtube abcdefghijk"), Files.readAllLines(file));
+    }
+}
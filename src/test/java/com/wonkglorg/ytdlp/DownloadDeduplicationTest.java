@@ -0,0 +1,144 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.builder.DownloadBuilder;
+import com.wonkglorg.ytdlp.handle.DownloadHandle;
+import com.wonkglorg.ytdlp.mapper.VideoFileInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses a shell script in place of yt-dlp that counts its invocations, optionally hanging until the test releases it
+ */
+public class DownloadDeduplicationTest {
+    private static final String URL = "https://www.youtube.com/watch?v=dQw4w9WgXcQ";
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            echo run >> "$DIR/invocations"
+            sleep 1
+            echo '{"id": "abc", "title": "Test video"}'
+            echo "[yt-dlp-java:filepath]$DIR/Test video.mp4"
+            """);
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentIdenticalDownloadsShareOneProcess() throws Exception {
+        CompletableFuture<VideoFileInfo<VideoInfo>> first = CompletableFuture.supplyAsync(() -> builder("https://www.youtube.com/watch?v=dQw4w9WgXcQ").download());
+        CompletableFuture<VideoFileInfo<VideoInfo>> second = CompletableFuture.supplyAsync(() -> builder("https://youtu.be/dQw4w9WgXcQ").download());
+
+        VideoFileInfo<VideoInfo> result = first.get(10, TimeUnit.SECONDS);
+        Assert.assertSame(result, second.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, Files.readAllLines(ytDlp.resolve("invocations")).size());
+    }
+
+    @Test
+    public void sequentialDownloadsRunAgain() throws IOException {
+        builder("https://www.youtube.com/watch?v=dQw4w9WgXcQ").download();
+        builder("https://www.youtube.com/watch?v=dQw4w9WgXcQ").download();
+        Assert.assertEquals(2, Files.readAllLines(ytDlp.resolve("invocations")).size());
+    }
+
+    @Test
+    public void cancelledFollowerDetachesWithoutStoppingTheDownload() throws Exception {
+        hangUntilReleased();
+        DownloadHandle<VideoFileInfo<VideoInfo>> leader = builder(URL).setExecutor(executor).startDownload();
+        long pid = awaitPid();
+        ExecutorService followerExecutor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch attached = new CountDownLatch(1);
+            DownloadHandle<VideoFileInfo<VideoInfo>> follower = builder(URL)
+                    .setDownloadProgressCallback(data -> attached.countDown())
+                    .setExecutor(followerExecutor)
+                    .startDownload();
+            Assert.assertTrue(attached.await(10, TimeUnit.SECONDS));
+
+            Assert.assertTrue(follower.cancel());
+            Assert.assertTrue(follower.getFuture().isCancelled());
+            // the follower no longer blocks its thread waiting for the download
+            followerExecutor.submit(() -> {
+            }).get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(FakeYtDlp.isRunning(pid));
+
+            Files.delete(ytDlp.resolve("hang"));
+            Assert.assertEquals("Test video", leader.getFuture().get(10, TimeUnit.SECONDS).videoInfo().getTitle());
+        } finally {
+            followerExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledLeaderKeepsTheDownloadForFollowers() throws Exception {
+        hangUntilReleased();
+        DownloadHandle<VideoFileInfo<VideoInfo>> leader = builder(URL).setExecutor(executor).startDownload();
+        long pid = awaitPid();
+        CountDownLatch attached = new CountDownLatch(1);
+        DownloadHandle<VideoFileInfo<VideoInfo>> follower = builder(URL).setExecutor(executor).setDownloadProgressCallback(data -> attached.countDown()).startDownload();
+        Assert.assertTrue(attached.await(10, TimeUnit.SECONDS));
+
+        Assert.assertTrue(leader.cancel());
+        Assert.assertTrue(leader.getFuture().isCancelled());
+        Assert.assertTrue(FakeYtDlp.isRunning(pid));
+
+        Files.delete(ytDlp.resolve("hang"));
+        Assert.assertEquals("Test video", follower.getFuture().get(10, TimeUnit.SECONDS).videoInfo().getTitle());
+        Assert.assertEquals(1, Files.readAllLines(ytDlp.resolve("invocations")).size());
+    }
+
+    @Test
+    public void cancellingEveryCallerStopsTheProcess() throws Exception {
+        hangUntilReleased();
+        DownloadHandle<VideoFileInfo<VideoInfo>> leader = builder(URL).setExecutor(executor).startDownload();
+        long pid = awaitPid();
+        CountDownLatch attached = new CountDownLatch(1);
+        DownloadHandle<VideoFileInfo<VideoInfo>> follower = builder(URL).setExecutor(executor).setDownloadProgressCallback(data -> attached.countDown()).startDownload();
+        Assert.assertTrue(attached.await(10, TimeUnit.SECONDS));
+
+        Assert.assertTrue(leader.cancel());
+        Assert.assertTrue(follower.cancel());
+        FakeYtDlp.await(() -> !FakeYtDlp.isRunning(pid));
+    }
+
+    /**
+     * Replaces the script by one reporting progress until the hang file is deleted
+     */
+    private void hangUntilReleased() throws IOException {
+        ytDlp.setScript("""
+                echo run >> "$DIR/invocations"
+                echo $$ > "$DIR/pid"
+                while [ -e "$DIR/hang" ]; do
+                  printf '[download]  50.0%% of   10.00MiB at    1.00MiB/s ETA 00:05\\n' >&2
+                  sleep 0.05
+                done
+                echo '{"id": "abc", "title": "Test video"}'
+                echo "[yt-dlp-java:filepath]$DIR/Test video.mp4"
+                """);
+        Files.createFile(ytDlp.resolve("hang"));
+    }
+
+    private long awaitPid() throws Exception {
+        Path pidFile = ytDlp.resolve("pid");
+        FakeYtDlp.await(() -> Files.exists(pidFile) && pidFile.toFile().length() > 0);
+        return Long.parseLong(Files.readString(pidFile).trim());
+    }
+
+    private DownloadBuilder builder(String url) {
+        return new DownloadBuilder(url, ytDlp.getDirectory().toString()).setSingleProcess(true).setDownloadProgressCallback(null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.exception.DownloadTimeoutException;
+import com.wonkglorg.ytdlp.handle.DownloadHandle;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Uses a shell script in place of yt-dlp that starts writing a partial file, then either finishes or hangs on a child
+ * process the way a stuck ffmpeg would
+ */
+public class DownloadHandleTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            echo "[download] Destination: video.mp4"
+            touch video.mp4.part video.mp4.part-Frag1
+            case "$*" in
+              *hang*)
+                sleep 30 &
+                echo $! > child.pid
+                wait
+                ;;
+              *)
+                printf '[download]  50.0%% of   10.00MiB at    1.00MiB/s ETA 00:05\\r'
+                rm video.mp4.part video.mp4.part-Frag1
+                ;;
+            esac
+            """);
+
+    private YtDlpRequest request(String url) {
+        YtDlpRequest request = new YtDlpRequest(url, ytDlp.getDirectory().toString());
+        request.setDownloadProgressCallback(null);
+        return request;
+    }
+
+    private long childPid() throws IOException {
+        return Long.parseLong(Files.readString(ytDlp.resolve("child.pid")).trim());
+    }
+
+    @Test
+    public void reportsLatestProgress() {
+        DownloadHandle<YtDlpResponse> handle = YtDlp.executeCancellable(request("https://example.com/video"), null, null);
+        handle.join();
+
+        Assert.assertFalse(handle.isCancelled());
+        Assert.assertEquals(50f, handle.getProgress().orElseThrow().progressPercent(), 0);
+    }
+
+    @Test
+    public void cancelKillsProcessTreeAndDeletesPartialFiles() throws Exception {
+        DownloadHandle<YtDlpResponse> handle = YtDlp.executeCancellable(request("https://example.com/hang"), null, null);
+        Path pidFile = ytDlp.resolve("child.pid");
+        FakeYtDlp.await(() -> Files.exists(pidFile) && pidFile.toFile().length() > 0);
+        long child = childPid();
+
+        Assert.assertTrue(handle.cancel());
+        try {
+            handle.join();
+            Assert.fail("Expected the download to be cancelled");
+        } catch (CancellationException expected) {
+        }
+        Assert.assertTrue(handle.isCancelled());
+        FakeYtDlp.await(() -> !FakeYtDlp.isRunning(child));
+        FakeYtDlp.await(() -> !Files.exists(ytDlp.resolve("video.mp4.part")) && !Files.exists(ytDlp.resolve("video.mp4.part-Frag1")));
+    }
+
+    @Test
+    public void cancelKeepsDestinationOfEarlierDownload() throws Exception {
+        Files.writeString(ytDlp.resolve("video.mp4"), "earlier download");
+        DownloadHandle<YtDlpResponse> handle = YtDlp.executeCancellable(request("https://example.com/hang"), null, null);
+        Path pidFile = ytDlp.resolve("child.pid");
+        FakeYtDlp.await(() -> Files.exists(pidFile) && pidFile.toFile().length() > 0);
+
+        Assert.assertTrue(handle.cancel());
+        FakeYtDlp.await(() -> !Files.exists(ytDlp.resolve("video.mp4.part")));
+        Assert.assertEquals("earlier download", Files.readString(ytDlp.resolve("video.mp4")));
+    }
+
+    @Test
+    public void stallTimeoutStopsHangingDownload() throws Exception {
+        DownloadHandle<YtDlpResponse> handle = YtDlp.executeCancellable(request("https://example.com/hang"), Duration.ofSeconds(20), Duration.ofMillis(300));
+        try {
+            handle.join();
+            Assert.fail("Expected the download to time out");
+        } catch (DownloadTimeoutException expected) {
+        }
+        Assert.assertTrue(handle.isTimedOut());
+        Assert.assertFalse(Files.exists(ytDlp.resolve("video.mp4.part")));
+        long child = childPid();
+        FakeYtDlp.await(() -> !FakeYtDlp.isRunning(child));
+    }
+}
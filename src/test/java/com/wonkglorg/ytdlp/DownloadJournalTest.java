@@ -0,0 +1,56 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.builder.DownloadBuilder;
+import com.wonkglorg.ytdlp.journal.JobJournal;
+import com.wonkglorg.ytdlp.journal.JournalStats;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Uses a shell script in place of yt-dlp that downloads every url except one that is unavailable
+ */
+public class DownloadJournalTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            for arg in "$@"; do
+              case "$arg" in
+                https://*) url=$arg ;;
+              esac
+            done
+            case "$url" in
+              */broken) echo "ERROR: [generic] broken: Video unavailable" >&2; exit 1 ;;
+            esac
+            case "$*" in
+              *--dump-json*) echo "{\\"id\\": \\"${url##*/}\\", \\"title\\": \\"${url##*/}\\"}" ;;
+              *)
+                echo "$@" >> "$DIR/downloads"
+                echo "[Merger] Merging formats into \\"$DIR/${url##*/}.mp4\\""
+                ;;
+            esac
+            """);
+
+    @Test
+    public void downloadsPendingJobsAndRecordsFailures() throws IOException {
+        try (JobJournal journal = new JobJournal(ytDlp.resolve("journal"))) {
+            journal.enqueueAll(List.of("https://example.com/one", "https://example.com/broken", "https://example.com/three"));
+            JournalStats stats = new DownloadBuilder(null, ytDlp.getDirectory().toString())
+                    .setDownloadProgressCallback(null)
+                    .downloadJournal(journal, 2);
+
+            Assert.assertEquals(new JournalStats(0, 0, 2, 1), stats);
+            Assert.assertTrue(journal.next().isEmpty());
+        }
+
+        List<String> downloads = Files.readAllLines(ytDlp.resolve("downloads"));
+        Assert.assertEquals(2, downloads.size());
+        for (String download : downloads) {
+            Assert.assertTrue(download.contains("--continue"));
+        }
+    }
+}
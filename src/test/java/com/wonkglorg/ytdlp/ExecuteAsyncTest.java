@@ -0,0 +1,85 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.scheduler.ProcessScheduler;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses a shell script in place of yt-dlp that succeeds, fails or hangs depending on the url
+ */
+public class ExecuteAsyncTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            case "$*" in
+              *fail*) echo "ERROR: Unsupported URL" >&2; exit 2 ;;
+              *hang*) echo $$ > "$DIR/pid"; exec sleep 30 ;;
+            esac
+            echo "done"
+            """);
+
+    private static YtDlpRequest request(String url) {
+        YtDlpRequest request = new YtDlpRequest(url);
+        request.setDownloadProgressCallback(null);
+        return request;
+    }
+
+    @Test
+    public void completesWithTheResponse() throws Exception {
+        YtDlpResponse response = YtDlp.executeAsync(request("https://example.com/video")).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(0, response.getExitCode());
+        Assert.assertEquals("done\n", response.getOut());
+    }
+
+    @Test
+    public void failsOnNonZeroExit() {
+        CompletableFuture<YtDlpResponse> future = YtDlp.executeAsync(request("https://example.com/fail"));
+        try {
+            future.join();
+            Assert.fail("Expected the request to fail");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof YtDlpException);
+            Assert.assertTrue(e.getCause().getMessage().contains("ERROR: Unsupported URL"));
+        }
+    }
+
+    @Test
+    public void cancelDestroysTheProcess() throws Exception {
+        CompletableFuture<YtDlpResponse> future = YtDlp.executeAsync(request("https://example.com/hang"));
+        Path pidFile = ytDlp.resolve("pid");
+        FakeYtDlp.await(() -> Files.exists(pidFile) && pidFile.toFile().length() > 0);
+        long pid = Long.parseLong(Files.readString(pidFile).trim());
+
+        Assert.assertTrue(future.cancel(true));
+        FakeYtDlp.await(() -> !FakeYtDlp.isRunning(pid));
+    }
+
+    @Test
+    public void cancelReleasesPermitGrantedConcurrently() throws Exception {
+        ProcessScheduler previous = YtDlp.getScheduler();
+        ProcessScheduler scheduler = new ProcessScheduler(1, 1);
+        YtDlp.setScheduler(scheduler);
+        try {
+            for (int i = 0; i < 200; i++) {
+                // times out instead of blocking forever if an earlier iteration leaked the permit
+                ProcessScheduler.Permit held = scheduler.acquireAsync(null).get(10, TimeUnit.SECONDS);
+                CompletableFuture<YtDlpResponse> future = YtDlp.executeAsync(request("https://example.com/video"));
+                // the queued request is granted the permit while it is being cancelled
+                CompletableFuture<Void> release = CompletableFuture.runAsync(held::close);
+                future.cancel(true);
+                release.join();
+            }
+            FakeYtDlp.await(() -> scheduler.getMetrics().running() == 0 && scheduler.getMetrics().queueDepth() == 0);
+        } finally {
+            YtDlp.setScheduler(previous);
+        }
+    }
+}
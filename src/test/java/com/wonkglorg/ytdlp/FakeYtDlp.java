@@ -0,0 +1,106 @@
+package com.wonkglorg.ytdlp;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Installs a shell script in place of yt-dlp for the duration of a test, the script runs in a fresh temporary directory
+ * available to it as {@code $DIR} which is deleted afterwards. Tests using it are skipped on windows.
+ */
+public class FakeYtDlp extends ExternalResource {
+
+    private final String script;
+    private String previousExecutable;
+    private Path directory;
+
+    /**
+     * @param script the body of the script, run by /bin/sh
+     */
+    public FakeYtDlp(String script) {
+        this.script = script;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        Assume.assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"));
+        previousExecutable = YtDlp.getExecutablePath();
+        directory = Files.createTempDirectory("ytdlp-fake");
+        setScript(script);
+    }
+
+    @Override
+    protected void after() {
+        YtDlp.setExecutablePath(previousExecutable);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replaces the script for the rest of the test
+     *
+     * @param script the body of the script, run by /bin/sh
+     */
+    public void setScript(String script) throws IOException {
+        Path file = directory.resolve("yt-dlp");
+        Files.writeString(file, "#!/bin/sh\nDIR='" + directory + "'\n" + script);
+        file.toFile().setExecutable(true);
+        YtDlp.setExecutablePath(file.toString());
+    }
+
+    /**
+     * @return the temporary directory of the test
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param name a file name
+     * @return the file in the temporary directory
+     */
+    public Path resolve(String name) {
+        return directory.resolve(name);
+    }
+
+    /**
+     * Waits up to 10 seconds for the condition, failing the test if it is not met in time
+     */
+    public static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) Assert.fail("Condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * A killed child reparented to an init that does not reap it stays a zombie, which does not count as running
+     *
+     * @return true if the process is running
+     */
+    public static boolean isRunning(long pid) {
+        Path stat = Path.of("/proc", String.valueOf(pid), "stat");
+        if (Files.exists(stat)) {
+            try {
+                String content = Files.readString(stat);
+                char state = content.charAt(content.lastIndexOf(')') + 2);
+                return state != 'Z' && state != 'X';
+            } catch (IOException e) {
+                // exited while reading
+                return false;
+            }
+        }
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+}
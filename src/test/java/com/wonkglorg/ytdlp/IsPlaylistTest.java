@@ -0,0 +1,49 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.utils.PlaylistUrls;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
+/**
+ * Uses a shell script in place of yt-dlp answering the playlist probe for urls of unknown sites
+ */
+public class IsPlaylistTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            echo "$@" >> "$DIR/invocations"
+            case "$*" in
+              *example.com/list*) echo "playlist" ;;
+            esac
+            """);
+
+    @Test
+    public void classifiesYoutubeUrlsLocally() throws IOException {
+        Assert.assertEquals(Optional.of(false), PlaylistUrls.classify("https://www.youtube.com/watch?v=dQw4w9WgXcQ"));
+        Assert.assertEquals(Optional.of(false), PlaylistUrls.classify("https://youtu.be/dQw4w9WgXcQ"));
+        Assert.assertEquals(Optional.of(false), PlaylistUrls.classify("https://www.youtube.com/shorts/abc"));
+        Assert.assertEquals(Optional.of(true), PlaylistUrls.classify("https://www.youtube.com/watch?v=dQw4w9WgXcQ&list=PL123"));
+        Assert.assertEquals(Optional.of(true), PlaylistUrls.classify("https://www.youtube.com/playlist?list=PL123"));
+        Assert.assertEquals(Optional.of(true), PlaylistUrls.classify("https://www.youtube.com/@channel/videos"));
+        Assert.assertEquals(Optional.empty(), PlaylistUrls.classify("https://example.com/watch?v=1"));
+
+        Assert.assertTrue(YtDlp.isPlaylist("https://music.youtube.com/playlist?list=PL123"));
+        Assert.assertFalse(YtDlp.isPlaylist("https://www.youtube.com/watch?v=dQw4w9WgXcQ"));
+        Assert.assertFalse(Files.exists(ytDlp.resolve("invocations")));
+    }
+
+    @Test
+    public void probesUnknownSitesWithoutExtractingEntries() throws IOException {
+        Assert.assertTrue(YtDlp.isPlaylist("https://example.com/list"));
+        Assert.assertFalse(YtDlp.isPlaylist("https://example.com/video"));
+
+        String probe = Files.readAllLines(ytDlp.resolve("invocations")).get(0);
+        Assert.assertTrue(probe.contains("--playlist-items 0"));
+        Assert.assertFalse(probe.contains("--dump-single-json"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.journal.Job;
+import com.wonkglorg.ytdlp.journal.JobJournal;
+import com.wonkglorg.ytdlp.journal.JournalStats;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class JobJournalTest {
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("ytdlp-journal");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static List<String> urls(int count) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            urls.add("https://www.youtube.com/watch?v=video" + i);
+        }
+        return urls;
+    }
+
+    private static List<String> drain(JobJournal journal) {
+        List<String> urls = new ArrayList<>();
+        for (Optional<Job> job = journal.next(); job.isPresent(); job = journal.next()) {
+            urls.add(job.get().url());
+            journal.finish(job.get());
+        }
+        return urls;
+    }
+
+    @Test
+    public void handsOutJobsInOrderAndKeepsStateAcrossRestarts() throws IOException {
+        try (JobJournal journal = new JobJournal(directory)) {
+            journal.enqueueAll(urls(5));
+            Job first = journal.next().orElseThrow();
+            Job second = journal.next().orElseThrow();
+            journal.next().orElseThrow();
+            journal.finish(first);
+            journal.fail(second, "HTTP Error 403: Forbidden");
+            Assert.assertEquals(new JournalStats(2, 1, 1, 1), journal.getStats());
+        }
+
+        try (JobJournal journal = new JobJournal(directory)) {
+            // the started job was interrupted by the restart and is handed out again first
+            Assert.assertEquals(new JournalStats(3, 0, 1, 1), journal.getStats());
+            Assert.assertEquals(urls(5).subList(2, 5), drain(journal));
+            Assert.assertEquals(1, journal.retryFailed());
+            Assert.assertEquals(List.of(urls(5).get(1)), drain(journal));
+            Assert.assertTrue(journal.getStats().isDone());
+            Assert.assertEquals(5, journal.getStats().finished());
+        }
+    }
+
+    @Test
+    public void recoversFromCrashWithoutClose() throws IOException {
+        Path crashedDirectory = Files.createDirectory(directory.resolve("crashed"));
+        try (JobJournal running = new JobJournal(directory)) {
+            running.enqueueAll(urls(3));
+            running.finish(running.next().orElseThrow());
+            running.next().orElseThrow();
+            running.sync();
+            // the files as a crash at this point leaves them, the running instance never touches the copy
+            Files.copy(directory.resolve("journal.snapshot"), crashedDirectory.resolve("journal.snapshot"));
+            Files.copy(directory.resolve("journal.log"), crashedDirectory.resolve("journal.log"));
+        }
+        // simulate a write torn by the crash at the end of the log
+        try (FileChannel log = FileChannel.open(crashedDirectory.resolve("journal.log"), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[]{0x59, 0x4a, 0x52, 0x43, 3, 0}));
+        }
+
+        try (JobJournal journal = new JobJournal(crashedDirectory)) {
+            Assert.assertEquals(new JournalStats(2, 0, 1, 0), journal.getStats());
+            Assert.assertEquals(urls(3).subList(1, 3), drain(journal));
+        }
+    }
+
+    @Test
+    public void rejectsSecondInstanceWhileOpen() throws IOException {
+        try (JobJournal journal = new JobJournal(directory)) {
+            journal.enqueue("https://www.youtube.com/watch?v=video0");
+            try {
+                new JobJournal(directory);
+                Assert.fail("Expected the journal to be locked");
+            } catch (YtDlpException expected) {
+            }
+            Assert.assertEquals(1, journal.getStats().pending());
+        }
+        // released on close
+        new JobJournal(directory).close();
+    }
+
+    @Test
+    public void snapshotsDropFinishedJobs() throws IOException {
+        try (JobJournal journal = new JobJournal(directory, 10, false)) {
+            journal.enqueueAll(urls(30));
+            for (int i = 0; i < 20; i++) {
+                journal.finish(journal.next().orElseThrow());
+            }
+            Job failed = journal.next().orElseThrow();
+            journal.fail(failed, "unavailable");
+            Assert.assertEquals(new JournalStats(9, 0, 20, 1), journal.getStats());
+        }
+        long snapshotSize = Files.size(directory.resolve("journal.snapshot"));
+
+        try (JobJournal journal = new JobJournal(directory, 10, false)) {
+            Assert.assertEquals(new JournalStats(9, 0, 20, 1), journal.getStats());
+            Assert.assertEquals(urls(30).subList(21, 30), drain(journal));
+            journal.retryFailed();
+            Assert.assertEquals(List.of(urls(30).get(20)), drain(journal));
+        }
+        Assert.assertTrue(Files.size(directory.resolve("journal.snapshot")) < snapshotSize);
+    }
+}
@@ -0,0 +1,64 @@
+package com.wonkglorg.ytdlp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wonkglorg.ytdlp.mapper.JsonReaders;
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Per call latency of {@link VideoInfo} deserialization with a new {@link ObjectMapper} per call (previous behaviour)
+ * compared to the shared {@link JsonReaders}.
+ * <br>
+ * Usage: {@code JsonReadersBenchmark [path to a --dump-json capture of a single video]}, defaults to the bundled
+ * video-info-sample.json test resource.
+ */
+public class JsonReadersBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int ROUNDS = 5_000;
+
+    public static void main(String[] args) throws IOException {
+        String json = args.length > 0 ? Files.readString(Path.of(args[0])) : readSample();
+
+        //first call of each path, includes class loading and deserializer construction
+        long start = System.nanoTime();
+        new ObjectMapper().readValue(json, VideoInfo.class);
+        System.out.printf("first call new mapper    %8.3f ms%n", (System.nanoTime() - start) / 1_000_000d);
+        start = System.nanoTime();
+        JsonReaders.read(json, VideoInfo.class);
+        System.out.printf("first call shared reader %8.3f ms%n", (System.nanoTime() - start) / 1_000_000d);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            new ObjectMapper().readValue(json, VideoInfo.class);
+            JsonReaders.read(json, VideoInfo.class);
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            new ObjectMapper().readValue(json, VideoInfo.class);
+        }
+        report("new mapper", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            JsonReaders.read(json, VideoInfo.class);
+        }
+        report("shared reader", System.nanoTime() - start);
+    }
+
+    private static String readSample() throws IOException {
+        try (InputStream stream = JsonReadersBenchmark.class.getResourceAsStream("/video-info-sample.json")) {
+            if (stream == null) throw new IOException("video-info-sample.json not found on the classpath");
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void report(String name, long nanos) {
+        System.out.printf("%-24s %8.3f ms/call%n", name, nanos / (double) ROUNDS / 1_000_000d);
+    }
+}
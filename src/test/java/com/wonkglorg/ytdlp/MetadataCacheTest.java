@@ -0,0 +1,95 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.cache.CacheKeys;
+import com.wonkglorg.ytdlp.cache.InMemoryMetadataCache;
+import com.wonkglorg.ytdlp.utils.SingleFlight;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MetadataCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        InMemoryMetadataCache cache = new InMemoryMetadataCache(2, 60_000);
+        cache.put("a", "{}");
+        cache.put("b", "{}");
+        cache.get("a");
+        cache.put("c", "{}");
+
+        Assert.assertTrue(cache.get("a").isPresent());
+        Assert.assertFalse(cache.get("b").isPresent());
+        Assert.assertTrue(cache.get("c").isPresent());
+    }
+
+    @Test
+    public void expiresEntries() throws InterruptedException {
+        InMemoryMetadataCache cache = new InMemoryMetadataCache(10, 20);
+        cache.put("a", "{}");
+        Assert.assertEquals(Optional.of("{}"), cache.get("a"));
+        Thread.sleep(40);
+        Assert.assertEquals(Optional.empty(), cache.get("a"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void normalizesUrls() {
+        String key = CacheKeys.video("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        Assert.assertEquals("video:Youtube:dQw4w9WgXcQ", key);
+        Assert.assertEquals(key, CacheKeys.video("https://youtu.be/dQw4w9WgXcQ?t=42"));
+        Assert.assertEquals(key, CacheKeys.video("https://m.youtube.com/watch?feature=share&v=dQw4w9WgXcQ&list=PL123"));
+        Assert.assertEquals(key, CacheKeys.video("https://www.youtube.com/shorts/dQw4w9WgXcQ"));
+        Assert.assertEquals("playlist-preview:YoutubeTab:PL123", CacheKeys.playlistPreview("https://www.youtube.com/watch?v=dQw4w9WgXcQ&list=PL123"));
+        Assert.assertEquals("video:https://vimeo.com/Path?x=1", CacheKeys.video(" HTTPS://Vimeo.com/Path?x=1#top"));
+    }
+
+    @Test
+    public void sharesConcurrentWork() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "result";
+        }));
+        started.await();
+
+        List<CompletableFuture<String>> waiting = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiting.add(CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+                runs.incrementAndGet();
+                return "duplicate";
+            })));
+        }
+        // give the waiting callers time to join the flight
+        Thread.sleep(100);
+        Assert.assertTrue(waiting.stream().noneMatch(CompletableFuture::isDone));
+        release.countDown();
+
+        Assert.assertEquals("result", first.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<String> future : waiting) {
+            Assert.assertEquals("result", future.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, runs.get());
+        Assert.assertEquals(0, flights.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.capture.CapturedOutput;
+import com.wonkglorg.ytdlp.capture.OutputCapture;
+import com.wonkglorg.ytdlp.capture.OutputSink;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Uses a shell script in place of yt-dlp printing numbered lines to stdout and stderr
+ */
+public class OutputCaptureTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            i=1
+            while [ $i -le 2000 ]; do
+              echo "out line $i"
+              echo "err line $i" >&2
+              i=$((i + 1))
+            done
+            case "$*" in
+              *fail*) echo "ERROR: failed" >&2; exit 1 ;;
+            esac
+            """);
+
+    private YtDlpRequest request(String url) {
+        YtDlpRequest request = new YtDlpRequest(url);
+        request.setDownloadProgressCallback(null);
+        return request;
+    }
+
+    @Test
+    public void tailKeepsTheEndOfTheOutput() {
+        YtDlpRequest request = request("https://example.com/video");
+        request.setOutputCapture(OutputCapture.tail(1));
+        YtDlpResponse response = YtDlp.execute(request);
+
+        String out = response.getOut();
+        Assert.assertTrue(response.getOutput().isTruncated());
+        Assert.assertEquals(1024, out.length());
+        Assert.assertTrue(out.endsWith("out line 2000\n"));
+        Assert.assertFalse(response.getError().isTruncated());
+        Assert.assertTrue(response.getErr().startsWith("err line 1\n"));
+    }
+
+    @Test
+    public void discardKeepsNothing() {
+        YtDlpRequest request = request("https://example.com/video");
+        request.setOutputCapture(OutputCapture.discard());
+        request.setErrorCapture(OutputCapture.discard());
+        YtDlpResponse response = YtDlp.execute(request);
+
+        Assert.assertEquals("", response.getOut());
+        Assert.assertEquals("", response.getErr());
+        Assert.assertTrue(response.getOutput().isTruncated());
+    }
+
+    @Test
+    public void tailMarksDroppedOutputOfSingleLargeWrite() throws IOException {
+        OutputSink sink = OutputCapture.tail(1).openSink();
+        sink.write("a".repeat(476) + "b".repeat(1024));
+        CapturedOutput output = sink.toOutput();
+        Assert.assertTrue(output.isTruncated());
+        Assert.assertEquals("b".repeat(1024), output.asString());
+
+        sink = OutputCapture.tail(1).openSink();
+        sink.write("a".repeat(1000));
+        sink.write("b".repeat(2048));
+        sink.write("c".repeat(10));
+        output = sink.toOutput();
+        Assert.assertTrue(output.isTruncated());
+        Assert.assertEquals("b".repeat(1014) + "c".repeat(10), output.asString());
+    }
+
+    @Test
+    public void fileCaptureIsReadLazilyAndDeletedOnClose() throws IOException {
+        YtDlpRequest request = request("https://example.com/video");
+        request.setOutputCapture(OutputCapture.file(ytDlp.getDirectory()));
+        request.setErrorCapture(OutputCapture.file(ytDlp.getDirectory()));
+        Path file;
+        try (YtDlpResponse response = YtDlp.execute(request)) {
+            CapturedOutput output = response.getOutput();
+            file = output.getFile().orElseThrow();
+            try (Stream<String> lines = output.lines()) {
+                List<String> kept = lines.collect(Collectors.toList());
+                Assert.assertEquals(2000, kept.size());
+                Assert.assertEquals("out line 1", kept.get(0));
+                Assert.assertEquals("out line 2000", kept.get(1999));
+            }
+            Assert.assertTrue(response.getErr().endsWith("err line 2000\n"));
+        }
+        Assert.assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void fileCaptureStillCallsLineCallback() {
+        List<String> seen = new ArrayList<>();
+        YtDlpRequest request = request("https://example.com/video");
+        request.setDownloadLineCallback(seen::add);
+        request.setOutputCapture(OutputCapture.file(ytDlp.getDirectory()));
+        try (YtDlpResponse response = YtDlp.execute(request)) {
+            Assert.assertEquals(2000, seen.size());
+            Assert.assertEquals(2000, response.getOutput().lines().count());
+        }
+    }
+
+    @Test
+    public void failureUsesTheKeptErrorOutput() throws IOException {
+        YtDlpRequest request = request("https://example.com/fail");
+        request.setOutputCapture(OutputCapture.file(ytDlp.getDirectory()));
+        request.setErrorCapture(OutputCapture.tail(1));
+        try {
+            YtDlp.execute(request);
+            Assert.fail("Expected the request to fail");
+        } catch (YtDlpException e) {
+            Assert.assertTrue(e.getMessage().length() <= 1024);
+            Assert.assertTrue(e.getMessage().endsWith("ERROR: failed\n"));
+        }
+        try (Stream<Path> files = Files.list(ytDlp.getDirectory())) {
+            // only the script is left, the temp file of the failed request was deleted
+            Assert.assertEquals(1, files.count());
+        }
+    }
+}
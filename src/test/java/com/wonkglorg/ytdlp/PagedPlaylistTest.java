@@ -0,0 +1,51 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Uses a shell script in place of yt-dlp serving the requested --playlist-items range of a 7 entry playlist
+ */
+public class PagedPlaylistTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            while [ $# -gt 0 ]; do
+              if [ "$1" = "--playlist-items" ]; then range=$2; fi
+              shift
+            done
+            echo "$range" >> "$DIR/invocations"
+            i=${range%:*}
+            while [ $i -le ${range#*:} ] && [ $i -le 7 ]; do
+              echo "{\\"id\\": \\"v$i\\", \\"url\\": \\"https://example.com/v$i\\"}"
+              i=$((i + 1))
+            done
+            """);
+
+    @Test
+    public void fetchesAllPagesInOrder() throws IOException {
+        List<String> ids;
+        try (Stream<VideoPreviewInfo> entries = YtDlp.streamPlaylistPreviewInfo("https://example.com/playlist", 3)) {
+            ids = entries.map(VideoPreviewInfo::getId).collect(Collectors.toList());
+        }
+        Assert.assertEquals(List.of("v1", "v2", "v3", "v4", "v5", "v6", "v7"), ids);
+        Assert.assertEquals(List.of("1:3", "4:6", "7:9"), Files.readAllLines(ytDlp.resolve("invocations")));
+    }
+
+    @Test
+    public void stopsFetchingWhenClosedEarly() throws IOException {
+        try (Stream<VideoPreviewInfo> entries = YtDlp.streamPlaylistPreviewInfo("https://example.com/playlist", 3)) {
+            Assert.assertEquals("v1", entries.findFirst().map(VideoPreviewInfo::getId).orElseThrow());
+        }
+        // the first page and at most the prefetched second one
+        Assert.assertTrue(Files.readAllLines(ytDlp.resolve("invocations")).size() <= 2);
+    }
+}
@@ -0,0 +1,128 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.builder.DownloadBuilder;
+import com.wonkglorg.ytdlp.builder.FailurePolicy;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.mapper.DownloadResult;
+import com.wonkglorg.ytdlp.mapper.PlaylistDownloadResult;
+import com.wonkglorg.ytdlp.mapper.json.PlaylistPreviewInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Uses a shell script in place of yt-dlp listing a playlist of three entries, the second one fails after a short delay
+ * and the third one hangs while the file {@code hang} exists
+ */
+public class PlaylistBatchTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            case "$*" in
+              *--flat-playlist*)
+                echo '{"id": "PL1", "title": "Playlist", "entries": [{"id": "v1", "url": "https://example.com/v1", "title": "One"}, {"id": "v2", "url": "https://example.com/v2", "title": "Two"}, {"id": "v3", "url": "https://example.com/v3", "title": "Three"}]}'
+                exit 0
+                ;;
+            esac
+            for arg in "$@"; do
+              case "$arg" in
+                https://*) url=$arg ;;
+              esac
+            done
+            echo "${url##*/}" >> "$DIR/invocations"
+            case "$url" in
+              */v2) sleep 0.5; echo "ERROR: [generic] v2: Video unavailable" >&2; exit 1 ;;
+              */v3) if [ -e "$DIR/hang" ]; then echo $$ > "$DIR/v3.pid"; exec sleep 30; fi ;;
+            esac
+            echo "[Merger] Merging formats into \\"$DIR/${url##*/}.mp4\\""
+            """);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private PlaylistDownloadResult<PlaylistPreviewInfo, VideoPreviewInfo> download(boolean parallel, FailurePolicy policy) {
+        return new DownloadBuilder("https://example.com/playlist", ytDlp.getDirectory().toString())
+                .setDownloadProgressCallback(null)
+                .setExecutor(executor)
+                .downloadPlaylistShortenedBatch(parallel, policy);
+    }
+
+    private static List<String> ids(List<DownloadResult<VideoPreviewInfo>> results) {
+        return results.stream().map(result -> result.videoInfo().getId()).collect(Collectors.toList());
+    }
+
+    private void assertSucceeded(DownloadResult<VideoPreviewInfo> result) {
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(ytDlp.resolve(result.videoInfo().getId() + ".mp4").toFile(), result.videoFileInfo().file());
+    }
+
+    private static void assertFailed(DownloadResult<VideoPreviewInfo> result) {
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertTrue(result.error() instanceof YtDlpException);
+        Assert.assertTrue(result.error().getMessage().contains("Video unavailable"));
+    }
+
+    private static void assertCancelled(DownloadResult<VideoPreviewInfo> result) {
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertTrue(result.error() instanceof CancellationException);
+    }
+
+    @Test
+    public void sequentialContinueDownloadsEveryOtherEntry() {
+        List<DownloadResult<VideoPreviewInfo>> results = download(false, FailurePolicy.CONTINUE).results();
+        Assert.assertEquals(List.of("v1", "v2", "v3"), ids(results));
+        assertSucceeded(results.get(0));
+        assertFailed(results.get(1));
+        assertSucceeded(results.get(2));
+    }
+
+    @Test
+    public void sequentialCancelSkipsTheRemainingEntries() throws IOException {
+        List<DownloadResult<VideoPreviewInfo>> results = download(false, FailurePolicy.CANCEL_REMAINING).results();
+        Assert.assertEquals(List.of("v1", "v2", "v3"), ids(results));
+        assertSucceeded(results.get(0));
+        assertFailed(results.get(1));
+        assertCancelled(results.get(2));
+        Assert.assertEquals(List.of("v1", "v2"), Files.readAllLines(ytDlp.resolve("invocations")));
+    }
+
+    @Test
+    public void parallelContinueKeepsPlaylistOrder() {
+        List<DownloadResult<VideoPreviewInfo>> results = download(true, FailurePolicy.CONTINUE).results();
+        Assert.assertEquals(List.of("v1", "v2", "v3"), ids(results));
+        assertSucceeded(results.get(0));
+        assertFailed(results.get(1));
+        assertSucceeded(results.get(2));
+    }
+
+    @Test
+    public void parallelCancelStopsUnfinishedEntries() throws Exception {
+        Files.createFile(ytDlp.resolve("hang"));
+        List<DownloadResult<VideoPreviewInfo>> results = download(true, FailurePolicy.CANCEL_REMAINING).results();
+        Assert.assertEquals(List.of("v1", "v2", "v3"), ids(results));
+        // finished before the failure, kept
+        assertSucceeded(results.get(0));
+        assertFailed(results.get(1));
+        assertCancelled(results.get(2));
+
+        // interrupting the worker destroyed the hanging process
+        Path pidFile = ytDlp.resolve("v3.pid");
+        long pid = Long.parseLong(Files.readString(pidFile).trim());
+        FakeYtDlp.await(() -> !FakeYtDlp.isRunning(pid));
+    }
+}
@@ -0,0 +1,97 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.builder.DownloadBuilder;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.mapper.VideoFileInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Uses a shell script in place of yt-dlp listing a playlist of three entries that finish in reverse order, the second
+ * one fails while the file {@code fail} exists and the third one hangs while the file {@code hang} exists
+ */
+public class PlaylistStreamTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            case "$*" in
+              *--flat-playlist*)
+                echo '{"id": "PL1", "title": "Playlist", "entries": [{"id": "v1", "url": "https://example.com/v1", "title": "One"}, {"id": "v2", "url": "https://example.com/v2", "title": "Two"}, {"id": "v3", "url": "https://example.com/v3", "title": "Three"}]}'
+                exit 0
+                ;;
+            esac
+            for arg in "$@"; do
+              case "$arg" in
+                https://*) url=$arg ;;
+              esac
+            done
+            case "$url" in
+              */v1) sleep 1 ;;
+              */v2) if [ -e "$DIR/fail" ]; then echo "ERROR: [generic] v2: Video unavailable" >&2; exit 1; fi; sleep 0.5 ;;
+              */v3) if [ -e "$DIR/hang" ]; then echo $$ > "$DIR/v3.pid"; exec sleep 30; fi ;;
+            esac
+            echo "[Merger] Merging formats into \\"$DIR/${url##*/}.mp4\\""
+            """);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void download(Consumer<VideoFileInfo<VideoPreviewInfo>> consumer) {
+        new DownloadBuilder("https://example.com/playlist", ytDlp.getDirectory().toString())
+                .setDownloadProgressCallback(null)
+                .setExecutor(executor)
+                .downloadPlaylistShortened(true, consumer);
+    }
+
+    @Test
+    public void passesResultsInCompletionOrder() {
+        List<String> ids = new CopyOnWriteArrayList<>();
+        download(result -> ids.add(result.videoInfo().getId()));
+        Assert.assertEquals(List.of("v3", "v2", "v1"), ids);
+    }
+
+    @Test
+    public void throwsTheFailureOfADownload() throws Exception {
+        Files.createFile(ytDlp.resolve("fail"));
+        try {
+            download(result -> {
+            });
+            Assert.fail("Expected the download to fail");
+        } catch (YtDlpException e) {
+            // the exception of the task itself, not one wrapping its description
+            Assert.assertTrue(e.getMessage().startsWith("ERROR: [generic] v2: Video unavailable"));
+        }
+    }
+
+    @Test
+    public void throwingConsumerCancelsRemainingDownloads() throws Exception {
+        Files.createFile(ytDlp.resolve("hang"));
+        try {
+            download(result -> {
+                throw new IllegalStateException("consumer failed");
+            });
+            Assert.fail("Expected the consumer failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("consumer failed", e.getMessage());
+        }
+        Path pidFile = ytDlp.resolve("v3.pid");
+        FakeYtDlp.await(() -> Files.exists(pidFile) && pidFile.toFile().length() > 0);
+        long pid = Long.parseLong(Files.readString(pidFile).trim());
+        FakeYtDlp.await(() -> !FakeYtDlp.isRunning(pid));
+    }
+}
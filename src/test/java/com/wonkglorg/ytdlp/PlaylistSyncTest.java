@@ -0,0 +1,59 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.mapper.PlaylistDiff;
+import com.wonkglorg.ytdlp.mapper.json.VideoPreviewInfo;
+import com.wonkglorg.ytdlp.sync.PlaylistSync;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Uses a shell script in place of yt-dlp printing a flat playlist listing controlled by the test
+ */
+public class PlaylistSyncTest {
+
+    private static final String URL = "https://www.youtube.com/playlist?list=PL123";
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("cat \"$DIR/listing.json\"\n");
+
+    @Test
+    public void reportsOnlyChanges() throws IOException {
+        Path state = ytDlp.resolve("state.txt");
+        writeListing("a", "b", "c");
+
+        PlaylistSync sync = new PlaylistSync(URL, state);
+        PlaylistDiff first = sync.fetchDiff();
+        Assert.assertEquals(List.of("a", "b", "c"), ids(first.added()));
+        sync.markSeen(List.of("a", "b"));
+
+        writeListing("d", "b", "c");
+        PlaylistSync restarted = new PlaylistSync(URL, state);
+        PlaylistDiff second = restarted.fetchDiff();
+        // c was never marked as seen, so it is still new
+        Assert.assertEquals(List.of("d", "c"), ids(second.added()));
+        Assert.assertEquals(List.of("a"), second.removedIds());
+
+        restarted.markSeen(List.of("d", "c"));
+        restarted.forget(second.removedIds());
+        Assert.assertFalse(restarted.fetchDiff().hasChanges());
+    }
+
+    private void writeListing(String... ids) throws IOException {
+        String entries = Stream.of(ids)
+                .map(id -> "{\"id\": \"" + id + "\", \"url\": \"https://www.youtube.com/watch?v=" + id + "\", \"ie_key\": \"Youtube\"}")
+                .collect(Collectors.joining(", "));
+        Files.writeString(ytDlp.resolve("listing.json"), "{\"id\": \"PL123\", \"title\": \"Playlist\", \"entries\": [" + entries + "]}");
+    }
+
+    private static List<String> ids(List<VideoPreviewInfo> entries) {
+        return entries.stream().map(VideoPreviewInfo::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,75 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.scheduler.ProcessScheduler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+public class ProcessSchedulerTest {
+
+    @Test
+    public void limitsProcessesGlobally() {
+        ProcessScheduler scheduler = new ProcessScheduler(2, 2);
+        CompletableFuture<ProcessScheduler.Permit> first = scheduler.acquireAsync("a.com");
+        CompletableFuture<ProcessScheduler.Permit> second = scheduler.acquireAsync("b.com");
+        CompletableFuture<ProcessScheduler.Permit> third = scheduler.acquireAsync("c.com");
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertTrue(second.isDone());
+        Assert.assertFalse(third.isDone());
+        Assert.assertEquals(1, scheduler.getMetrics().queueDepth());
+
+        first.join().close();
+        Assert.assertTrue(third.isDone());
+        Assert.assertEquals(2, scheduler.getMetrics().running());
+    }
+
+    @Test
+    public void fullKeyDoesNotBlockOtherKeys() {
+        ProcessScheduler scheduler = new ProcessScheduler(4, 1);
+        CompletableFuture<ProcessScheduler.Permit> first = scheduler.acquireAsync("youtube.com");
+        CompletableFuture<ProcessScheduler.Permit> sameKey = scheduler.acquireAsync("youtube.com");
+        CompletableFuture<ProcessScheduler.Permit> otherKey = scheduler.acquireAsync("vimeo.com");
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertFalse(sameKey.isDone());
+        Assert.assertTrue(otherKey.isDone());
+
+        first.join().close();
+        Assert.assertTrue(sameKey.isDone());
+    }
+
+    @Test
+    public void cancelledRequestLeavesQueue() {
+        ProcessScheduler scheduler = new ProcessScheduler(1, 1);
+        ProcessScheduler.Permit held = scheduler.acquireAsync(null).join();
+        CompletableFuture<ProcessScheduler.Permit> cancelled = scheduler.acquireAsync(null);
+        CompletableFuture<ProcessScheduler.Permit> next = scheduler.acquireAsync(null);
+
+        cancelled.cancel(false);
+        held.close();
+
+        Assert.assertTrue(next.isDone());
+        Assert.assertEquals(1, scheduler.getMetrics().running());
+    }
+
+    @Test
+    public void keyOfStripsSubdomains() {
+        Assert.assertEquals("youtube.com", ProcessScheduler.keyOf("https://www.youtube.com/watch?v=dQw4w9WgXcQ"));
+        Assert.assertEquals("youtube.com", ProcessScheduler.keyOf("https://music.youtube.com/playlist?list=abc"));
+        Assert.assertEquals("youtu.be", ProcessScheduler.keyOf("https://youtu.be/dQw4w9WgXcQ"));
+        Assert.assertNull(ProcessScheduler.keyOf(null));
+        Assert.assertNull(ProcessScheduler.keyOf("not a url"));
+    }
+
+    @Test
+    public void keyOfKeepsSitesBelowCountrySecondLevelDomains() {
+        Assert.assertEquals("bbc.co.uk", ProcessScheduler.keyOf("https://www.bbc.co.uk/iplayer/episode/abc"));
+        Assert.assertEquals("itv.co.uk", ProcessScheduler.keyOf("https://itv.co.uk/watch/abc"));
+        Assert.assertEquals("abc.net.au", ProcessScheduler.keyOf("https://iview.abc.net.au/show/abc"));
+        Assert.assertEquals("co.uk", ProcessScheduler.keyOf("https://co.uk/"));
+        Assert.assertEquals("nicovideo.jp", ProcessScheduler.keyOf("https://www.nicovideo.jp/watch/sm9"));
+        Assert.assertEquals("192.168.1.10", ProcessScheduler.keyOf("http://192.168.1.10:8080/video.mp4"));
+    }
+}
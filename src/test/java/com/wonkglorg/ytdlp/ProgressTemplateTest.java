@@ -0,0 +1,81 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.callback.ProgressCallBackData;
+import com.wonkglorg.ytdlp.utils.ProgressTemplate;
+import com.wonkglorg.ytdlp.utils.StreamProcessExtractor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class ProgressTemplateTest {
+
+    @Test
+    public void parsesProgressLine() {
+        double[] values = new double[ProgressTemplate.FIELDS];
+        Assert.assertTrue(ProgressTemplate.parse(ProgressTemplate.MARKER + "1048576|10485760|NA|524288.5|18|NA|NA", values));
+        Assert.assertEquals(1048576, values[ProgressTemplate.DOWNLOADED_BYTES], 0);
+        Assert.assertEquals(10485760, values[ProgressTemplate.TOTAL_BYTES], 0);
+        Assert.assertEquals(-1, values[ProgressTemplate.TOTAL_BYTES_ESTIMATE], 0);
+        Assert.assertEquals(524288.5, values[ProgressTemplate.SPEED], 0);
+        Assert.assertEquals(18, values[ProgressTemplate.ETA], 0);
+        Assert.assertEquals(-1, values[ProgressTemplate.FRAGMENT_COUNT], 0);
+    }
+
+    @Test
+    public void rejectsOtherLines() {
+        double[] values = new double[ProgressTemplate.FIELDS];
+        Assert.assertFalse(ProgressTemplate.parse("[download]  50.0% of 10.00MiB at 1.00MiB/s ETA 00:05", values));
+        Assert.assertFalse(ProgressTemplate.parse(ProgressTemplate.MARKER + "1|2|3", values));
+        Assert.assertFalse(ProgressTemplate.parse(ProgressTemplate.MARKER + "1|2|3|4|5|6|7|8", values));
+    }
+
+    @Test
+    public void reportsNumericProgress() {
+        List<ProgressCallBackData> updates = parse(new YtDlpRequest("https://example.com").setStructuredProgress(true),
+                "[download] Destination: video.mp4\n" + ProgressTemplate.MARKER + "5242880|NA|10485760|1048576|5|2|4\r");
+
+        Assert.assertEquals(1, updates.size());
+        ProgressCallBackData data = updates.get(0);
+        Assert.assertEquals(50f, data.progressPercent(), 0.001);
+        Assert.assertEquals(5242880, data.downloadedBytes());
+        Assert.assertEquals(10485760, data.totalBytes());
+        Assert.assertEquals("10.00MiB", data.totalFileSize());
+        Assert.assertEquals("1.00MiB/s", data.downloadSpeed());
+        Assert.assertEquals(5, data.etaSeconds());
+        Assert.assertEquals(4, data.totalFragments());
+        Assert.assertEquals("video.mp4", data.fileName());
+    }
+
+    @Test
+    public void parsesHumanReadableProgressWithoutDecimals() {
+        List<ProgressCallBackData> updates = parse(new YtDlpRequest("https://example.com"),
+                "[download]  50% of ~ 1GiB at Unknown B/s ETA Unknown\r");
+
+        Assert.assertEquals(1, updates.size());
+        Assert.assertEquals("1GiB", updates.get(0).totalFileSize());
+        Assert.assertEquals(-1, updates.get(0).etaSeconds());
+    }
+
+    @Test
+    public void formatsBytesIndependentOfTheDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            Assert.assertEquals("1.50KiB", ProgressTemplate.formatBytes(1536));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    private static List<ProgressCallBackData> parse(YtDlpRequest request, String output) {
+        List<ProgressCallBackData> updates = new ArrayList<>();
+        request.setDownloadProgressCallback(updates::add);
+        new StreamProcessExtractor(new StringBuilder(), new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)), request).run();
+        return updates;
+    }
+}
@@ -0,0 +1,52 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.mapper.json.PlaylistInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Uses a shell script in place of yt-dlp serving a 5 entry flat playlist listing and the information of each entry
+ */
+public class ShardedPlaylistInfoTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            echo "$@" >> "$DIR/invocations"
+            case "$*" in
+              *--flat-playlist*)
+                printf '{"id": "PL1", "title": "Playlist", "entries": ['
+                for i in 1 2 3 4 5; do
+                  [ $i -gt 1 ] && printf ', '
+                  printf '{"id": "v%s", "url": "https://example.com/v%s"}' $i $i
+                done
+                echo ']}'
+                ;;
+              *)
+                for url in "$@"; do
+                  case "$url" in
+                    https://*) echo "{\\"id\\": \\"${url##*/}\\", \\"original_url\\": \\"$url\\", \\"title\\": \\"Title ${url##*/}\\"}" ;;
+                  esac
+                done
+                ;;
+            esac
+            """);
+
+    @Test
+    public void mergesShardsInPlaylistOrder() throws IOException {
+        PlaylistInfo playlistInfo = YtDlp.getPlaylistInfo("https://example.com/playlist", 2).orElseThrow();
+
+        Assert.assertEquals("Playlist", playlistInfo.getTitle());
+        List<String> ids = playlistInfo.getEntries().stream().map(VideoInfo::getId).collect(Collectors.toList());
+        Assert.assertEquals(List.of("v1", "v2", "v3", "v4", "v5"), ids);
+        Assert.assertEquals("Title v3", playlistInfo.getEntries().get(2).getTitle());
+        // the listing and one process per shard
+        Assert.assertEquals(3, Files.readAllLines(ytDlp.resolve("invocations")).size());
+    }
+}
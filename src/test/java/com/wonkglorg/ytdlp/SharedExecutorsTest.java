@@ -0,0 +1,75 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.utils.SharedExecutors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SharedExecutorsTest {
+
+    @After
+    public void shutdown() {
+        SharedExecutors.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void taskExecutorRunsTasksWaitingForOtherTasks() throws Exception {
+        ExecutorService executor = SharedExecutors.taskExecutor();
+        // more outer tasks than processors, each blocking a thread until its inner task ran on the same executor
+        int tasks = Runtime.getRuntime().availableProcessors() + 2;
+        CountDownLatch allStarted = new CountDownLatch(tasks);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            futures.add(executor.submit(() -> {
+                allStarted.countDown();
+                Assert.assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+                return executor.submit(() -> "inner").get(10, TimeUnit.SECONDS);
+            }));
+        }
+        for (Future<String> future : futures) {
+            Assert.assertEquals("inner", future.get(20, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void threadsDoNotKeepTheJvmAlive() throws Exception {
+        Assert.assertTrue(SharedExecutors.taskExecutor().submit(() -> Thread.currentThread().isDaemon()).get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(SharedExecutors.streamExecutor().submit(() -> Thread.currentThread().isDaemon()).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownStopsTheExecutorsAndUseCreatesNewOnes() throws Exception {
+        ExecutorService before = SharedExecutors.taskExecutor();
+        SharedExecutors.shutdown(1, TimeUnit.SECONDS);
+        Assert.assertTrue(before.isTerminated());
+
+        ExecutorService after = SharedExecutors.taskExecutor();
+        Assert.assertNotSame(before, after);
+        Assert.assertEquals("ran", after.submit(() -> "ran").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownInterruptsTasksRunningPastTheTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        SharedExecutors.taskExecutor().submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        SharedExecutors.shutdown(100, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,85 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.builder.DownloadBuilder;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.mapper.VideoFileInfo;
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import com.wonkglorg.ytdlp.utils.FormatOption;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Uses a shell script in place of yt-dlp printing the video json and the final file path to stdout and the download
+ * progress to stderr the way a single process download in quiet mode does
+ */
+public class SingleProcessDownloadTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            echo "$@" >> "$DIR/invocations"
+            case "$*" in
+              *missing*) echo "ERROR: [generic] missing: Video unavailable" >&2; exit 1 ;;
+            esac
+            echo '{"id": "abc", "title": "Test video", "extractor_key": "Generic"}'
+            printf '[download]  50.0%% of   10.00MiB at    1.00MiB/s ETA 00:05\\r' >&2
+            printf '[download] 100.0%% of   10.00MiB at    1.00MiB/s ETA 00:00\\n' >&2
+            case "$*" in
+              *nopath*) ;;
+              *) echo "[yt-dlp-java:filepath]$DIR/Test video.mp4" ;;
+            esac
+            """);
+
+    private DownloadBuilder builder(String url) {
+        return new DownloadBuilder(url, ytDlp.getDirectory().toString())
+                .setSingleProcess(true)
+                .setFormatOption(FormatOption.MP4)
+                .setDownloadProgressCallback(null);
+    }
+
+    @Test
+    public void readsInfoAndFilePathFromOneProcess() throws IOException {
+        VideoFileInfo<VideoInfo> result = builder("https://example.com/video").download();
+
+        Assert.assertEquals("abc", result.videoInfo().getId());
+        Assert.assertEquals("Test video", result.videoInfo().getTitle());
+        Assert.assertEquals(ytDlp.resolve("Test video.mp4").toFile(), result.file());
+
+        List<String> invocations = Files.readAllLines(ytDlp.resolve("invocations"));
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertTrue(invocations.get(0).contains("--dump-json"));
+        Assert.assertTrue(invocations.get(0).contains("--no-simulate"));
+        Assert.assertTrue(invocations.get(0).contains("--print after_move:[yt-dlp-java:filepath]%(filepath)s"));
+    }
+
+    @Test
+    public void reportsProgressFromStderr() {
+        List<Float> progress = new CopyOnWriteArrayList<>();
+        builder("https://example.com/video")
+                .setDownloadProgressCallback(data -> progress.add(data.progressPercent()))
+                .download();
+
+        Assert.assertEquals(List.of(50.0f, 100.0f), progress);
+    }
+
+    @Test
+    public void fallsBackToTheTitleWithoutFilePath() {
+        VideoFileInfo<VideoInfo> result = builder("https://example.com/nopath").download();
+        Assert.assertEquals(ytDlp.resolve("Test video.mp4").toFile(), result.file());
+    }
+
+    @Test
+    public void failsWithTheReportedError() {
+        try {
+            builder("https://example.com/missing").download();
+            Assert.fail("Expected the download to fail");
+        } catch (YtDlpException e) {
+            Assert.assertTrue(e.getMessage().contains("Video unavailable"));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.utils.StreamLineReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StreamLineReaderTest {
+
+    private static List<String> readLines(String input, int bufferSize, StringBuilder raw) throws IOException {
+        List<String> lines = new ArrayList<>();
+        StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, bufferSize);
+        reader.read(raw, (line, terminator) -> lines.add(line + "|" + (terminator == StreamLineReader.END_OF_STREAM ? "EOF" : terminator == '\r' ? "CR" : "LF")));
+        return lines;
+    }
+
+    @Test
+    public void splitsOnCarriageReturnAndLineFeed() throws IOException {
+        List<String> lines = readLines("[youtube] header\n\r[download] 1%\r[download] 2%\nend", 8192, null);
+        Assert.assertEquals(List.of("[youtube] header|LF", "|CR", "[download] 1%|CR", "[download] 2%|LF", "end|EOF"), lines);
+    }
+
+    @Test
+    public void treatsCarriageReturnLineFeedAsSingleBreak() throws IOException {
+        List<String> lines = readLines("first\r\nsecond\r\n", 8192, null);
+        Assert.assertEquals(List.of("first|CR", "second|CR"), lines);
+    }
+
+    @Test
+    public void decodesMultiByteCharsAcrossBlocks() throws IOException {
+        String title = "日本語のタイトル – Ünïcödé 🎵";
+        StringBuilder raw = new StringBuilder();
+        //tiny buffer forces lines and chars to span several reads
+        List<String> lines = readLines(title + "\n" + title, 3, raw);
+        Assert.assertEquals(List.of(title + "|LF", title + "|EOF"), lines);
+        Assert.assertEquals(title + "\n" + title, raw.toString());
+    }
+}
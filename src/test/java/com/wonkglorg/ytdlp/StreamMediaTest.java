@@ -0,0 +1,80 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.builder.DownloadBuilder;
+import com.wonkglorg.ytdlp.callback.ProgressCallBackData;
+import com.wonkglorg.ytdlp.exception.YtDlpException;
+import com.wonkglorg.ytdlp.utils.FormatOption;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Uses a shell script in place of yt-dlp writing a media file to stdout and its progress to stderr
+ */
+public class StreamMediaTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            echo "$@" >> "$DIR/invocations"
+            echo "[download] Destination: -" >&2
+            printf '[download]  50.0%% of    3.00MiB at    1.00MiB/s ETA 00:01\\r' >&2
+            cat "$DIR/media.bin"
+            printf '[download] 100.0%% of    3.00MiB at    1.00MiB/s ETA 00:00\\n' >&2
+            """);
+
+    private byte[] media;
+
+    @Before
+    public void setup() throws IOException {
+        media = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(media);
+        Files.write(ytDlp.resolve("media.bin"), media);
+    }
+
+    @Test
+    public void streamsMediaToOutputStreamWithProgress() throws IOException {
+        List<ProgressCallBackData> progress = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        long written = new DownloadBuilder("https://example.com/video", ytDlp.getDirectory().toString())
+                .setFormatOption(FormatOption.WEBM)
+                .setDownloadProgressCallback(progress::add)
+                .streamTo(stream);
+
+        Assert.assertEquals(media.length, written);
+        Assert.assertArrayEquals(media, stream.toByteArray());
+        Assert.assertEquals(2, progress.size());
+        Assert.assertEquals(100f, progress.get(1).progressPercent(), 0);
+        String command = Files.readAllLines(ytDlp.resolve("invocations")).get(0);
+        Assert.assertTrue(command.contains("--output -"));
+        Assert.assertTrue(command.contains("--format best[ext=webm]"));
+    }
+
+    @Test
+    public void streamsMediaToChannel() throws IOException {
+        Path target = ytDlp.resolve("target.bin");
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            YtDlpRequest request = new YtDlpRequest("https://example.com/video");
+            request.setDownloadProgressCallback(null);
+            Assert.assertEquals(media.length, YtDlp.executeToChannel(request, channel));
+        }
+        Assert.assertArrayEquals(media, Files.readAllBytes(target));
+    }
+
+    @Test(expected = YtDlpException.class)
+    public void rejectsFormatsNeedingPostProcessing() {
+        new DownloadBuilder("https://example.com/video", ytDlp.getDirectory().toString())
+                .setFormatOption(FormatOption.MP3)
+                .streamTo(new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,100 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.utils.StreamLineReader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Throughput comparison between the old per byte stream reading and {@link StreamLineReader}.
+ * <br>
+ * Usage: {@code StreamReaderBenchmark [path to a recorded yt-dlp stdout capture]}, if no capture is given a synthetic
+ * one (--dump-json lines followed by download progress output) of roughly 16MB is generated.
+ */
+public class StreamReaderBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        byte[] capture = args.length > 0 ? Files.readAllBytes(Path.of(args[0])) : syntheticCapture(16 * 1024 * 1024);
+        System.out.printf("Capture size: %.2f MB%n", capture.length / 1024d / 1024d);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            perByte(capture);
+            bulk(capture);
+        }
+
+        long perByteNanos = 0;
+        long bulkNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            perByte(capture);
+            perByteNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            bulk(capture);
+            bulkNanos += System.nanoTime() - start;
+        }
+
+        report("per byte", capture.length, perByteNanos);
+        report("bulk", capture.length, bulkNanos);
+    }
+
+    /**
+     * The previous implementation of StreamProcessExtractor#run
+     */
+    private static int perByte(byte[] capture) throws IOException {
+        InputStream stream = new BufferedInputStream(new ByteArrayInputStream(capture));
+        StringBuilder buffer = new StringBuilder();
+        StringBuilder currentLine = new StringBuilder();
+        int lines = 0;
+        int nextChar;
+        while ((nextChar = stream.read()) != -1) {
+            buffer.append((char) nextChar);
+            if (nextChar == '\r') {
+                lines += currentLine.toString().length() > 0 ? 1 : 0;
+                currentLine.setLength(0);
+                continue;
+            }
+            currentLine.append((char) nextChar);
+        }
+        return lines + buffer.length();
+    }
+
+    private static int bulk(byte[] capture) throws IOException {
+        InputStream stream = new BufferedInputStream(new ByteArrayInputStream(capture));
+        StringBuilder buffer = new StringBuilder();
+        int[] lines = {0};
+        new StreamLineReader(stream).read(buffer, (line, terminator) -> lines[0] += line.length() > 0 ? 1 : 0);
+        return lines[0] + buffer.length();
+    }
+
+    private static void report(String name, int bytes, long nanos) {
+        double seconds = nanos / (double) ROUNDS / 1_000_000_000d;
+        System.out.printf("%-10s %8.2f ms/round %8.2f MB/s%n", name, seconds * 1000, bytes / 1024d / 1024d / seconds);
+    }
+
+    private static byte[] syntheticCapture(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        int index = 0;
+        while (builder.length() < size) {
+            builder.append("{\"id\": \"vid").append(index).append("\", \"title\": \"Título número ").append(index)
+                    .append(" – 日本語\", \"description\": \"").append("Lorem ipsum dolor sit amet. ".repeat(40))
+                    .append("\", \"extractor_key\": \"Youtube\", \"duration\": 212}\n");
+            builder.append("[youtube] Extracting URL: https://www.youtube.com/watch?v=vid").append(index).append('\n');
+            builder.append("[download] Destination: Título número ").append(index).append(".mp4\n");
+            for (int percent = 0; percent <= 100; percent += 5) {
+                builder.append("\r[download]  ").append(percent).append(".0% of   12.34MiB at    2.50MiB/s ETA 00:0").append(percent % 10);
+            }
+            builder.append('\n');
+            index++;
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
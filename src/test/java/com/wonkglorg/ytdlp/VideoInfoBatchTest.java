@@ -0,0 +1,48 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.mapper.VideoInfoResult;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uses a shell script in place of yt-dlp that extracts the given urls in order, continuing after a failing one the way
+ * --ignore-errors does
+ */
+public class VideoInfoBatchTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("""
+            status=0
+            for url in "$@"; do
+              case "$url" in
+                */broken) echo "ERROR: [generic] broken: HTTP Error 404: Not Found" >&2; status=1 ;;
+                */s/short) echo '{"id": "xyz", "webpage_url": "https://example.com/v/xyz"}' ;;
+                */page/four) echo '{"id": "4", "webpage_url": "https://example.com/page/four"}' ;;
+                https://*) echo "{\\"id\\": \\"${url##*/}\\"}" ;;
+              esac
+            done
+            exit $status
+            """);
+
+    @Test
+    public void attributesResultsToTheirUrls() {
+        String one = "https://example.com/v/one";
+        String broken = "https://example.com/v/broken";
+        String shortLink = "https://example.com/s/short";
+        String four = "https://example.com/page/four";
+        Map<String, VideoInfoResult> results = YtDlp.getVideoInfos(List.of(one, broken, shortLink, four));
+
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals("one", results.get(one).videoInfo().getId());
+        Assert.assertFalse(results.get(broken).isSuccess());
+        Assert.assertEquals("HTTP Error 404: Not Found", results.get(broken).error());
+        // its video matches none of the urls, it must not be attributed to the failed url before it
+        Assert.assertFalse(results.get(shortLink).isSuccess());
+        Assert.assertEquals("No information returned for url", results.get(shortLink).error());
+        Assert.assertEquals("4", results.get(four).videoInfo().getId());
+    }
+}
@@ -0,0 +1,84 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.exception.WorkerException;
+import com.wonkglorg.ytdlp.worker.WorkerPool;
+import com.wonkglorg.ytdlp.worker.WorkerResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Drives a fake worker speaking the worker protocol, requires python3
+ */
+public class WorkerPoolTest {
+
+    private WorkerPool pool;
+
+    @Before
+    public void setup() throws URISyntaxException {
+        Assume.assumeTrue("python3 is not available", pythonAvailable());
+        Path fakeWorker = Path.of(getClass().getResource("/fake_yt_dlp_worker.py").toURI());
+        pool = new WorkerPool(List.of("python3", fakeWorker.toString()), 2, 3);
+    }
+
+    @After
+    public void cleanup() {
+        if (pool != null) pool.close();
+        YtDlp.setWorkerPool(null);
+    }
+
+    @Test
+    public void reusesWorkerUntilRecycled() {
+        String pid = pool.execute(List.of("pid"), null).out();
+        Assert.assertEquals(pid, pool.execute(List.of("pid"), null).out());
+        Assert.assertEquals(pid, pool.execute(List.of("pid"), null).out());
+        // replaced after 3 jobs
+        Assert.assertNotEquals(pid, pool.execute(List.of("pid"), null).out());
+    }
+
+    @Test
+    public void returnsFailedJobs() {
+        WorkerResult result = pool.execute(List.of("fail"), null);
+        Assert.assertEquals(1, result.exitCode());
+        Assert.assertEquals("ERROR: failed", result.err());
+    }
+
+    @Test
+    public void replacesCrashedWorker() {
+        Assert.assertThrows(WorkerException.class, () -> pool.execute(List.of("crash"), null));
+        Assert.assertEquals(0, pool.getIdleWorkers());
+        Assert.assertEquals("echo this", pool.execute(List.of("echo", "this"), null).out());
+    }
+
+    @Test
+    public void pingsStaleWorkers() {
+        pool.setHealthCheckAfter(0);
+        String pid = pool.execute(List.of("pid"), null).out();
+        Assert.assertEquals(pid, pool.execute(List.of("pid"), null).out());
+    }
+
+    @Test
+    public void executesRequestsOnWorker() {
+        YtDlp.setWorkerPool(pool);
+        YtDlpResponse response = YtDlp.executeOnWorker(new YtDlpRequest("https://example.com/video").addOption("--dump-json"));
+        Assert.assertEquals("https://example.com/video --dump-json", response.getOut());
+    }
+
+    private static boolean pythonAvailable() {
+        try {
+            return new ProcessBuilder("python3", "--version").start().waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.wonkglorg.ytdlp;
+
+import com.wonkglorg.ytdlp.mapper.json.VideoInfo;
+import com.wonkglorg.ytdlp.scheduler.ProcessScheduler;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses a shell script in place of yt-dlp to replay a recorded --dump-json output
+ */
+public class YtDlpJsonLinesTest {
+
+    @Rule
+    public final FakeYtDlp ytDlp = new FakeYtDlp("cat \"$DIR/output.json\"\n");
+
+    @Before
+    public void setup() throws IOException {
+        Files.writeString(ytDlp.resolve("output.json"), """
+                {"id": "first", "title": "First", "description": "contains }{ in the text"}
+                {"id": "second", "title": "Zweites – 日本語", "description": "} {"}
+                """, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void parsesEveryLineInOrder() {
+        List<VideoInfo> entries = new ArrayList<>();
+        YtDlp.executeJsonLines(new YtDlpRequest("https://example.com/videos"), VideoInfo.class, entries::add);
+
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals("first", entries.get(0).getId());
+        Assert.assertEquals("contains }{ in the text", entries.get(0).getDescription());
+        Assert.assertEquals("Zweites – 日本語", entries.get(1).getTitle());
+    }
+
+    @Test
+    public void consumerCanMakeRequestsOfItsOwn() throws Exception {
+        ProcessScheduler previous = YtDlp.getScheduler();
+        YtDlp.setScheduler(new ProcessScheduler(1, 1));
+        try {
+            List<String> nested = new CopyOnWriteArrayList<>();
+            // would wait forever for the permit held by the outer request if the consumer ran while holding it
+            CompletableFuture.runAsync(() -> YtDlp.executeJsonLines(new YtDlpRequest("https://example.com/videos"), VideoInfo.class,
+                    outer -> YtDlp.executeJsonLines(new YtDlpRequest("https://example.com/videos"), VideoInfo.class,
+                            inner -> nested.add(outer.getId() + "/" + inner.getId())))).get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals(List.of("first/first", "first/second", "second/first", "second/second"), nested);
+        } finally {
+            YtDlp.setScheduler(previous);
+        }
+    }
+
+    @Test
+    public void failingConsumerReleasesThePermit() {
+        ProcessScheduler previous = YtDlp.getScheduler();
+        ProcessScheduler scheduler = new ProcessScheduler(1, 1);
+        YtDlp.setScheduler(scheduler);
+        try {
+            YtDlp.executeJsonLines(new YtDlpRequest("https://example.com/videos"), VideoInfo.class, entry -> {
+                throw new IllegalStateException("consumer failed");
+            });
+            Assert.fail("Expected the consumer failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("consumer failed", e.getMessage());
+        } finally {
+            YtDlp.setScheduler(previous);
+        }
+        Assert.assertEquals(0, scheduler.getMetrics().running());
+    }
+}
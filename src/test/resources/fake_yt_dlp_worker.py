@@ -0,0 +1,28 @@
+"""
+Fake worker speaking the protocol of yt_dlp_worker.py without yt_dlp, the first argument selects the behaviour
+"""
+import json
+import os
+import sys
+
+
+def reply(message):
+    sys.stdout.write(json.dumps(message) + "\n")
+    sys.stdout.flush()
+
+
+reply({"ready": True, "version": "fake"})
+for line in sys.stdin:
+    job = json.loads(line)
+    if job.get("op") == "ping":
+        reply({"pong": True})
+        continue
+    args = job["args"]
+    if args[0] == "crash":
+        os._exit(3)
+    elif args[0] == "pid":
+        reply({"exit": 0, "out": str(os.getpid()), "err": ""})
+    elif args[0] == "fail":
+        reply({"exit": 1, "out": "", "err": "ERROR: failed"})
+    else:
+        reply({"exit": 0, "out": " ".join(args), "err": ""})